@@ -0,0 +1,229 @@
+package ru.practicum.explorewithme.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.explorewithme.service.dto.EventFullDto;
+import ru.practicum.explorewithme.service.model.Event;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Кэш карточек опубликованных событий для GET /events/{id}.
+ * Хранится снимок EventFullDto без просмотров; запись удаляется после коммита любой
+ * транзакции, изменившей событие, а изменения числа подтверждённых заявок прибавляются к снимку.
+ * Просмотры перечитываются из статистики не чаще раза в views-ttl-seconds,
+ * просмотр с нового IP между перечитываниями учитывается локально.
+ */
+@Component
+@Slf4j
+public class EventDetailCache {
+
+    private static final int MAX_COUNTED_IPS = 1000;
+
+    private final boolean enabled;
+    private final long viewsTtlNanos;
+    private final Cache<Long, Entry> cache;
+    private final AtomicLong generation = new AtomicLong();
+
+    public EventDetailCache(@Value("${ewm.event.cache.enabled:true}") boolean enabled,
+                            @Value("${ewm.event.cache.max-size:10000}") long maxSize,
+                            @Value("${ewm.event.cache.ttl-seconds:300}") long ttlSeconds,
+                            @Value("${ewm.event.cache.views-ttl-seconds:2}") long viewsTtlSeconds) {
+        this.enabled = enabled;
+        this.viewsTtlNanos = Duration.ofSeconds(viewsTtlSeconds).toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    /**
+     * Копия карточки события из кэша.
+     * При промахе карточка берётся из loader; loader бросает исключение, если событие
+     * не найдено или не опубликовано, и тогда в кэш ничего не попадает.
+     */
+    public EventFullDto get(Long eventId, Supplier<EventFullDto> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+
+        Entry entry = cache.getIfPresent(eventId);
+        if (entry == null) {
+            long loadGeneration = generation.get();
+            entry = new Entry(loader.get(), loadGeneration);
+            if (generation.get() == loadGeneration) {
+                cache.put(eventId, entry);
+            }
+        }
+        return entry.toDto();
+    }
+
+    /**
+     * Просмотры события с учётом хита текущего запроса.
+     * Значение из статистики перечитывается не чаще раза в views-ttl-seconds; хит отправляется
+     * асинхронно, поэтому до перечитывания каждый новый IP добавляет к нему единицу локально.
+     * Без записи в кэше просмотры берутся из loader как есть.
+     * @param ip адрес, с которого отправлен хит текущего запроса
+     */
+    public long getViews(Long eventId, String ip, LongSupplier loader) {
+        Entry entry = enabled ? cache.getIfPresent(eventId) : null;
+        if (entry == null) {
+            return loader.getAsLong();
+        }
+
+        entry.refreshViews(loader, System.nanoTime(), viewsTtlNanos);
+        return entry.countView(ip);
+    }
+
+    /**
+     * Прибавляет изменение числа подтверждённых заявок к карточке в кэше после коммита.
+     * Приращения не зависят от порядка коммитов, в отличие от записи итогового числа.
+     * Карточка, загруженная после начала изменения, могла прочитать число и до, и после коммита,
+     * поэтому она удаляется; загрузки, не успевшие сохраниться, отбрасываются по поколению.
+     */
+    public void onConfirmedRequestsChanged(Event event, int previousConfirmedRequests) {
+        int delta = event.getConfirmedRequests() - previousConfirmedRequests;
+        if (!enabled || delta == 0) {
+            return;
+        }
+
+        Long eventId = event.getId();
+        long changeGeneration = generation.incrementAndGet();
+        AfterCommit.run(() -> {
+            generation.incrementAndGet();
+            Entry entry = cache.getIfPresent(eventId);
+            if (entry == null) {
+                return;
+            }
+            if (entry.loadGeneration < changeGeneration) {
+                entry.confirmedDelta.addAndGet(delta);
+            } else {
+                cache.invalidate(eventId);
+            }
+        });
+    }
+
+    /**
+     * Удаляет карточку события после коммита текущей транзакции
+     */
+    public void evict(Long eventId) {
+        if (!enabled) {
+            return;
+        }
+
+        AfterCommit.run(() -> {
+            generation.incrementAndGet();
+            cache.invalidate(eventId);
+        });
+    }
+
+    /**
+     * Сбрасывает все карточки после коммита, например при переименовании категории
+     */
+    public void evictAll() {
+        if (!enabled) {
+            return;
+        }
+
+        AfterCommit.run(() -> {
+            generation.incrementAndGet();
+            cache.invalidateAll();
+            log.debug("Кэш карточек событий сброшен");
+        });
+    }
+
+    private static final class Entry {
+        private final EventFullDto snapshot;
+        private final long loadGeneration;
+        private final AtomicInteger confirmedDelta = new AtomicInteger();
+        private final AtomicBoolean viewsReloading = new AtomicBoolean();
+
+        // просмотры из статистики и локальные прибавки новых IP, под монитором записи
+        private long statsViews;
+        private long localViews;
+        private long viewsLoadedAt;
+        private boolean viewsLoaded;
+        private final Set<String> countedIps = new HashSet<>();
+
+        private Entry(EventFullDto dto, long loadGeneration) {
+            this.snapshot = dto;
+            this.loadGeneration = loadGeneration;
+        }
+
+        private void refreshViews(LongSupplier loader, long now, long ttlNanos) {
+            boolean loaded;
+            synchronized (this) {
+                if (viewsLoaded && now - viewsLoadedAt <= ttlNanos) {
+                    return;
+                }
+                loaded = viewsLoaded;
+            }
+            // пока значение перечитывает один запрос, остальные отдают прежнее
+            if (loaded && !viewsReloading.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                reloadViews(loader.getAsLong(), now);
+            } finally {
+                if (loaded) {
+                    viewsReloading.set(false);
+                }
+            }
+        }
+
+        private synchronized void reloadViews(long value, long loadedAt) {
+            if (viewsLoaded && loadedAt <= viewsLoadedAt) {
+                return;
+            }
+            // хиты IP из countedIps отправлены раньше и считаются учтёнными в value;
+            // набор помнит эти IP, чтобы их повторные просмотры не прибавлялись снова
+            statsViews = value;
+            localViews = 0;
+            viewsLoadedAt = loadedAt;
+            viewsLoaded = true;
+            if (countedIps.size() >= MAX_COUNTED_IPS) {
+                countedIps.clear();
+            }
+        }
+
+        private synchronized long countView(String ip) {
+            if (ip != null && countedIps.size() < MAX_COUNTED_IPS && countedIps.add(ip)) {
+                localViews++;
+            }
+            return statsViews + localViews;
+        }
+
+        private EventFullDto toDto() {
+            return new EventFullDto(
+                    snapshot.getId(),
+                    snapshot.getTitle(),
+                    snapshot.getAnnotation(),
+                    snapshot.getDescription(),
+                    snapshot.getCategory(),
+                    snapshot.getInitiator(),
+                    snapshot.getLocation(),
+                    snapshot.getEventDate(),
+                    snapshot.getPaid(),
+                    snapshot.getParticipantLimit(),
+                    snapshot.getRequestModeration(),
+                    snapshot.getState(),
+                    snapshot.getCreatedOn(),
+                    snapshot.getPublishedOn(),
+                    (snapshot.getConfirmedRequests() != null ? snapshot.getConfirmedRequests() : 0)
+                            + confirmedDelta.get(),
+                    null,
+                    snapshot.getRatingScore()
+            );
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package ru.practicum.explorewithme.service.controller;
 
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.PositiveOrZero;
 import lombok.RequiredArgsConstructor;
@@ -9,6 +10,7 @@ import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.explorewithme.client.StatsClient;
+import ru.practicum.explorewithme.service.dto.EventCursorPage;
 import ru.practicum.explorewithme.service.dto.EventFullDto;
 import ru.practicum.explorewithme.service.dto.EventShortDto;
 import ru.practicum.explorewithme.service.service.EventService;
@@ -23,9 +25,16 @@ import java.util.List;
 @Validated
 public class PublicEventController {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final EventService eventService;
     private final StatsClient statsClient;
 
+    /**
+     * Поиск опубликованных событий. С параметром cursor страница берётся после позиции курсора,
+     * следующий курсор возвращается в заголовке X-Next-Cursor; смещение from с курсором не сочетается.
+     * Курсор поддерживается для сортировок EVENT_DATE и RATING; VIEWS и RELEVANCE листаются через from.
+     */
     @GetMapping
     public List<EventShortDto> searchEvents(
             @RequestParam(required = false) String text,
@@ -37,9 +46,22 @@ public class PublicEventController {
             @RequestParam(required = false) String sort,
             @RequestParam(defaultValue = "0") @PositiveOrZero Integer from,
             @RequestParam(defaultValue = "10") @Positive Integer size,
-            HttpServletRequest request) {
+            @RequestParam(required = false) String cursor,
+            HttpServletRequest request,
+            HttpServletResponse response) {
 
         log.info("Публичный поиск событий: text={}, categories={}, paid={}", text, categories, paid);
+        if (cursor != null) {
+            if (from > 0) {
+                throw new IllegalArgumentException("Параметры from и cursor нельзя передавать одновременно");
+            }
+            EventCursorPage page = eventService.searchPublicEventsByCursor(text, categories, paid,
+                    rangeStart, rangeEnd, onlyAvailable, sort, cursor, size, request);
+            if (page.getNextCursor() != null) {
+                response.setHeader(NEXT_CURSOR_HEADER, page.getNextCursor());
+            }
+            return page.getEvents();
+        }
         return eventService.searchPublicEvents(text, categories, paid, rangeStart, rangeEnd,
                 onlyAvailable, sort, from, size, request);
     }
@@ -0,0 +1,65 @@
+package ru.practicum.explorewithme.service.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import ru.practicum.explorewithme.service.model.EventSort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Позиция последнего отданного события при постраничном обходе по курсору.
+ * Клиенту передаётся в виде непрозрачной строки: base64url от "SORT|ключ|id".
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class EventCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private final EventSort sort;
+    private final LocalDateTime eventDate;
+    private final Long ratingScore;
+    private final Long id;
+
+    public static EventCursor afterEventDate(LocalDateTime eventDate, Long id) {
+        return new EventCursor(EventSort.EVENT_DATE, eventDate, null, id);
+    }
+
+    public static EventCursor afterRating(long ratingScore, Long id) {
+        return new EventCursor(EventSort.RATING, null, ratingScore, id);
+    }
+
+    public String encode() {
+        String key = switch (sort) {
+            case EVENT_DATE -> eventDate.toString();
+            case RATING -> ratingScore.toString();
+            case VIEWS, RELEVANCE -> throw new IllegalStateException("Курсор для сортировки " + sort + " не поддерживается");
+        };
+        String raw = sort.name() + SEPARATOR + key + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static EventCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Неверное число полей курсора");
+            }
+
+            Long id = Long.parseLong(parts[2]);
+            return switch (EventSort.valueOf(parts[0])) {
+                case EVENT_DATE -> afterEventDate(LocalDateTime.parse(parts[1]), id);
+                case RATING -> afterRating(Long.parseLong(parts[1]), id);
+                case VIEWS, RELEVANCE -> throw new IllegalArgumentException("Курсор для сортировки "
+                        + parts[0] + " не поддерживается");
+            };
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Некорректный курсор пагинации: " + token);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package ru.practicum.explorewithme.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventCursorPage {
+
+    private List<EventShortDto> events;
+    private String nextCursor;
+}
@@ -0,0 +1,27 @@
+package ru.practicum.explorewithme.service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Строка выборки для списков событий: только поля {@link EventShortDto}
+ * и имена категории и инициатора, без загрузки сущности Event
+ */
+@Getter
+@AllArgsConstructor
+public class EventShortView {
+
+    private Long id;
+    private String title;
+    private String annotation;
+    private Long categoryId;
+    private String categoryName;
+    private Long initiatorId;
+    private String initiatorName;
+    private LocalDateTime eventDate;
+    private Boolean paid;
+    private Integer confirmedRequests;
+    private long ratingScore;
+}
@@ -2,24 +2,19 @@ package ru.practicum.explorewithme.service.mapper;
 
 import org.springframework.stereotype.Component;
 import ru.practicum.explorewithme.service.dto.CompilationDto;
+import ru.practicum.explorewithme.service.dto.EventShortDto;
 import ru.practicum.explorewithme.service.dto.NewCompilationDto;
 import ru.practicum.explorewithme.service.dto.UpdateCompilationRequest;
 import ru.practicum.explorewithme.service.model.Compilation;
 import ru.practicum.explorewithme.service.model.Event;
 
+import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 @Component
 public class CompilationMapper {
 
-    private final EventMapper eventMapper;
-
-    public CompilationMapper(EventMapper eventMapper) {
-        this.eventMapper = eventMapper;
-    }
-
-    public CompilationDto toDto(Compilation compilation) {
+    public CompilationDto toDto(Compilation compilation, List<EventShortDto> events) {
         if (compilation == null) {
             return null;
         }
@@ -29,11 +24,7 @@ public class CompilationMapper {
         dto.setTitle(compilation.getTitle());
         dto.setPinned(compilation.getPinned());
 
-        if (compilation.getEvents() != null) {
-            dto.setEvents(compilation.getEvents().stream()
-                    .map(eventMapper::toShortDto)
-                    .collect(Collectors.toList()));
-        }
+        dto.setEvents(events);
 
         return dto;
     }
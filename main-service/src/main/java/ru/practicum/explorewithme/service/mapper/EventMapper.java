@@ -63,6 +63,24 @@ public class EventMapper {
         return dto;
     }
 
+    public EventShortDto toShortDto(EventShortView view) {
+        if (view == null) {
+            return null;
+        }
+
+        EventShortDto dto = new EventShortDto();
+        dto.setId(view.getId());
+        dto.setTitle(view.getTitle());
+        dto.setAnnotation(view.getAnnotation());
+        dto.setCategory(new CategoryDto(view.getCategoryId(), view.getCategoryName()));
+        dto.setInitiator(new UserShortDto(view.getInitiatorId(), view.getInitiatorName()));
+        dto.setEventDate(view.getEventDate());
+        dto.setPaid(view.getPaid());
+        dto.setConfirmedRequests(view.getConfirmedRequests() != null ? view.getConfirmedRequests() : 0);
+        dto.setRatingScore(view.getRatingScore());
+        return dto;
+    }
+
     public List<EventFullDto> toFullDtoList(List<Event> events) {
         if (events == null) {
             return null;
@@ -0,0 +1,20 @@
+package ru.practicum.explorewithme.service.model;
+
+public enum EventSort {
+    EVENT_DATE,
+    VIEWS,
+    RATING,
+    RELEVANCE;
+
+    public static EventSort from(String sort) {
+        if (sort == null) {
+            return EVENT_DATE;
+        }
+        for (EventSort value : values()) {
+            if (value.name().equals(sort)) {
+                return value;
+            }
+        }
+        return EVENT_DATE;
+    }
+}
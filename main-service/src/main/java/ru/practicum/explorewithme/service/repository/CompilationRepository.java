@@ -3,9 +3,13 @@ package ru.practicum.explorewithme.service.repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.practicum.explorewithme.service.model.Compilation;
 
+import java.util.List;
+
 @Repository
 public interface CompilationRepository extends JpaRepository<Compilation, Long> {
 
@@ -13,4 +17,11 @@ public interface CompilationRepository extends JpaRepository<Compilation, Long>
 
     Page<Compilation> findAll(Pageable pageable);
 
+    /**
+     * Пары (id подборки, id события) для набора подборок — состав подборок
+     * без загрузки коллекций events
+     */
+    @Query("SELECT c.id, e.id FROM Compilation c JOIN c.events e WHERE c.id IN :ids")
+    List<Object[]> findEventIdsByCompilationIds(@Param("ids") List<Long> ids);
+
 }
@@ -2,7 +2,12 @@ package ru.practicum.explorewithme.service.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.explorewithme.service.dto.EventShortView;
 import ru.practicum.explorewithme.service.model.Event;
 import ru.practicum.explorewithme.service.model.EventState;
 
@@ -11,14 +16,24 @@ import java.util.Optional;
 
 public interface EventRepository extends JpaRepository<Event, Long>, EventRepositoryCustom {
 
-    Page<Event> findAllByInitiatorId(Long initiatorId, Pageable pageable);
+    @Query(value = "SELECT new ru.practicum.explorewithme.service.dto.EventShortView(" +
+            "e.id, e.title, e.annotation, c.id, c.name, u.id, u.name, " +
+            "e.eventDate, e.paid, e.confirmedRequests, e.ratingScore) " +
+            "FROM Event e JOIN e.category c JOIN e.initiator u " +
+            "WHERE u.id = :initiatorId",
+            countQuery = "SELECT COUNT(e) FROM Event e WHERE e.initiator.id = :initiatorId")
+    Page<EventShortView> findShortViewsByInitiatorId(@Param("initiatorId") Long initiatorId, Pageable pageable);
 
     Optional<Event> findByIdAndInitiatorId(Long eventId, Long initiatorId);
 
     boolean existsByCategoryId(Long categoryId);
 
+    @EntityGraph(attributePaths = {"category", "initiator"})
     List<Event> findAllByIdIn(List<Long> ids);
 
+    @EntityGraph(attributePaths = {"category", "initiator"})
     List<Event> findAllByIdInAndState(List<Long> ids, EventState state);
 
+    Slice<Event> findAllByState(EventState state, Pageable pageable);
+
 }
\ No newline at end of file
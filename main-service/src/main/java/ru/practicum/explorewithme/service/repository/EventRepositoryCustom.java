@@ -1,6 +1,9 @@
 package ru.practicum.explorewithme.service.repository;
 
+import ru.practicum.explorewithme.service.dto.EventCursor;
+import ru.practicum.explorewithme.service.dto.EventShortView;
 import ru.practicum.explorewithme.service.model.Event;
+import ru.practicum.explorewithme.service.model.EventSort;
 import ru.practicum.explorewithme.service.model.EventState;
 
 import java.time.LocalDateTime;
@@ -8,14 +11,44 @@ import java.util.List;
 
 public interface EventRepositoryCustom {
 
-    List<Event> findPublicEvents(String text,
-                                 List<Long> categories,
-                                 Boolean paid,
-                                 LocalDateTime rangeStart,
-                                 LocalDateTime rangeEnd,
-                                 Boolean onlyAvailable,
-                                 int from,
-                                 int size);
+    List<EventShortView> findPublicEvents(String text,
+                                          List<Long> categories,
+                                          Boolean paid,
+                                          LocalDateTime rangeStart,
+                                          LocalDateTime rangeEnd,
+                                          Boolean onlyAvailable,
+                                          EventSort sort,
+                                          int from,
+                                          int size);
+
+    /**
+     * Страница публичного поиска по курсору: вместо смещения используется условие
+     * "строго после" последнего отданного события в порядке сортировки
+     * @param sort EVENT_DATE или RATING; сортировка по просмотрам в БД недоступна
+     * @param after позиция последнего отданного события, null для первой страницы
+     */
+    List<EventShortView> findPublicEventsAfter(String text,
+                                               List<Long> categories,
+                                               Boolean paid,
+                                               LocalDateTime rangeStart,
+                                               LocalDateTime rangeEnd,
+                                               Boolean onlyAvailable,
+                                               EventSort sort,
+                                               EventCursor after,
+                                               int size);
+
+    /**
+     * Полнотекстовый поиск по title/annotation/description через tsvector-колонку
+     * search_vector, упорядоченный по релевантности (ts_rank), при равенстве — по id
+     */
+    List<EventShortView> findPublicEventsByRelevance(String text,
+                                                     List<Long> categories,
+                                                     Boolean paid,
+                                                     LocalDateTime rangeStart,
+                                                     LocalDateTime rangeEnd,
+                                                     Boolean onlyAvailable,
+                                                     int from,
+                                                     int size);
 
     List<Event> findAllByAdminFilters(List<Long> users,
                                       List<EventState> states,
@@ -25,11 +58,21 @@ public interface EventRepositoryCustom {
                                       int from,
                                       int size);
 
-    List<Event> findPublicEventsWithoutPagination(String text,
-                                                  List<Long> categories,
-                                                  Boolean paid,
-                                                  LocalDateTime rangeStart,
-                                                  LocalDateTime rangeEnd,
-                                                  Boolean onlyAvailable);
+    /**
+     * Идентификаторы опубликованных событий, подходящих под фильтры публичного поиска,
+     * без загрузки самих сущностей
+     */
+    List<Long> findPublicEventIds(String text,
+                                  List<Long> categories,
+                                  Boolean paid,
+                                  LocalDateTime rangeStart,
+                                  LocalDateTime rangeEnd,
+                                  Boolean onlyAvailable);
+
+    /**
+     * Проекции событий для списков в порядке переданных идентификаторов;
+     * отсутствующие идентификаторы пропускаются
+     */
+    List<EventShortView> findShortViewsInOrder(List<Long> ids);
 
 }
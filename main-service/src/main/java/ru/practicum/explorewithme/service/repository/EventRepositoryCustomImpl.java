@@ -2,15 +2,23 @@ package ru.practicum.explorewithme.service.repository;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
+import ru.practicum.explorewithme.service.dto.EventCursor;
+import ru.practicum.explorewithme.service.dto.EventShortView;
+import ru.practicum.explorewithme.service.model.Category;
 import ru.practicum.explorewithme.service.model.Event;
+import ru.practicum.explorewithme.service.model.EventSort;
 import ru.practicum.explorewithme.service.model.EventState;
+import ru.practicum.explorewithme.service.model.User;
 
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
 import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Repository
 @RequiredArgsConstructor
@@ -19,63 +27,130 @@ public class EventRepositoryCustomImpl implements EventRepositoryCustom {
     private final EntityManager entityManager;
 
     @Override
-    public List<Event> findPublicEvents(String text,
-                                        List<Long> categories,
-                                        Boolean paid,
-                                        LocalDateTime rangeStart,
-                                        LocalDateTime rangeEnd,
-                                        Boolean onlyAvailable,
-                                        int from,
-                                        int size) {
+    public List<EventShortView> findPublicEvents(String text,
+                                                 List<Long> categories,
+                                                 Boolean paid,
+                                                 LocalDateTime rangeStart,
+                                                 LocalDateTime rangeEnd,
+                                                 Boolean onlyAvailable,
+                                                 EventSort sort,
+                                                 int from,
+                                                 int size) {
 
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-        CriteriaQuery<Event> cq = cb.createQuery(Event.class);
+        CriteriaQuery<EventShortView> cq = cb.createQuery(EventShortView.class);
         Root<Event> event = cq.from(Event.class);
+        cq.select(shortView(cb, event));
 
-        List<Predicate> predicates = new ArrayList<>();
+        List<Predicate> predicates = buildPublicPredicates(cb, event, text, categories, paid,
+                rangeStart, rangeEnd, onlyAvailable);
 
-        predicates.add(cb.equal(event.get("state"), EventState.PUBLISHED));
+        cq.where(cb.and(predicates.toArray(new Predicate[0])));
+        cq.orderBy(publicOrder(cb, event, sort));
 
-        if (text != null && !text.trim().isEmpty()) {
-            String searchText = "%" + text.toLowerCase() + "%";
-            Predicate inAnnotation = cb.like(cb.lower(event.get("annotation")), searchText);
-            Predicate inDescription = cb.like(cb.lower(event.get("description")), searchText);
-            predicates.add(cb.or(inAnnotation, inDescription));
+        TypedQuery<EventShortView> query = entityManager.createQuery(cq);
+        query.setFirstResult(from);
+        query.setMaxResults(size);
+
+        return query.getResultList();
+    }
+
+    @Override
+    public List<EventShortView> findPublicEventsAfter(String text,
+                                                      List<Long> categories,
+                                                      Boolean paid,
+                                                      LocalDateTime rangeStart,
+                                                      LocalDateTime rangeEnd,
+                                                      Boolean onlyAvailable,
+                                                      EventSort sort,
+                                                      EventCursor after,
+                                                      int size) {
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<EventShortView> cq = cb.createQuery(EventShortView.class);
+        Root<Event> event = cq.from(Event.class);
+        cq.select(shortView(cb, event));
+
+        List<Predicate> predicates = buildPublicPredicates(cb, event, text, categories, paid,
+                rangeStart, rangeEnd, onlyAvailable);
+
+        if (after != null) {
+            Path<Long> id = event.get("id");
+            if (sort == EventSort.RATING) {
+                Path<Long> ratingScore = event.get("ratingScore");
+                predicates.add(cb.or(
+                        cb.lessThan(ratingScore, after.getRatingScore()),
+                        cb.and(cb.equal(ratingScore, after.getRatingScore()), cb.greaterThan(id, after.getId()))
+                ));
+            } else {
+                Path<LocalDateTime> eventDate = event.get("eventDate");
+                predicates.add(cb.or(
+                        cb.greaterThan(eventDate, after.getEventDate()),
+                        cb.and(cb.equal(eventDate, after.getEventDate()), cb.greaterThan(id, after.getId()))
+                ));
+            }
         }
 
+        cq.where(cb.and(predicates.toArray(new Predicate[0])));
+        cq.orderBy(publicOrder(cb, event, sort));
+
+        TypedQuery<EventShortView> query = entityManager.createQuery(cq);
+        query.setMaxResults(size);
+
+        return query.getResultList();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<EventShortView> findPublicEventsByRelevance(String text,
+                                                            List<Long> categories,
+                                                            Boolean paid,
+                                                            LocalDateTime rangeStart,
+                                                            LocalDateTime rangeEnd,
+                                                            Boolean onlyAvailable,
+                                                            int from,
+                                                            int size) {
+
+        StringBuilder sql = new StringBuilder(
+                "SELECT e.id FROM events e " +
+                "CROSS JOIN websearch_to_tsquery('russian', :text) q " +
+                "WHERE e.state = :state AND e.search_vector @@ q");
+        Map<String, Object> params = new HashMap<>();
+        params.put("text", text);
+        params.put("state", EventState.PUBLISHED.name());
+
         if (categories != null && !categories.isEmpty()) {
-            predicates.add(event.get("category").get("id").in(categories));
+            sql.append(" AND e.category_id IN (:categories)");
+            params.put("categories", categories);
         }
 
         if (paid != null) {
-            predicates.add(cb.equal(event.get("paid"), paid));
+            sql.append(" AND e.paid = :paid");
+            params.put("paid", paid);
         }
 
         if (rangeStart != null) {
-            predicates.add(cb.greaterThanOrEqualTo(event.get("eventDate"), rangeStart));
+            sql.append(" AND e.event_date >= :rangeStart");
+            params.put("rangeStart", rangeStart);
         }
 
         if (rangeEnd != null) {
-            predicates.add(cb.lessThanOrEqualTo(event.get("eventDate"), rangeEnd));
+            sql.append(" AND e.event_date <= :rangeEnd");
+            params.put("rangeEnd", rangeEnd);
         }
 
         if (onlyAvailable != null && onlyAvailable) {
-            Predicate noLimit = cb.equal(event.get("participantLimit"), 0);
-            Predicate limitNotReached = cb.lessThan(
-                    event.get("confirmedRequests"),
-                    event.get("participantLimit")
-            );
-            predicates.add(cb.or(noLimit, limitNotReached));
+            sql.append(" AND (e.participant_limit = 0 OR e.confirmed_requests < e.participant_limit)");
         }
 
-        cq.where(cb.and(predicates.toArray(new Predicate[0])));
-        cq.orderBy(cb.asc(event.get("eventDate")));
+        sql.append(" ORDER BY ts_rank(e.search_vector, q) DESC, e.id");
 
-        TypedQuery<Event> query = entityManager.createQuery(cq);
+        Query query = entityManager.createNativeQuery(sql.toString(), Long.class);
+        params.forEach(query::setParameter);
         query.setFirstResult(from);
         query.setMaxResults(size);
 
-        return query.getResultList();
+        return findShortViewsInOrder(query.getResultList());
     }
 
     @Override
@@ -90,6 +165,7 @@ public class EventRepositoryCustomImpl implements EventRepositoryCustom {
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
         CriteriaQuery<Event> cq = cb.createQuery(Event.class);
         Root<Event> event = cq.from(Event.class);
+        fetchCategoryAndInitiator(event);
 
         List<Predicate> predicates = new ArrayList<>();
 
@@ -127,17 +203,94 @@ public class EventRepositoryCustomImpl implements EventRepositoryCustom {
     }
 
     @Override
-    public List<Event> findPublicEventsWithoutPagination(String text,
-                                                         List<Long> categories,
-                                                         Boolean paid,
-                                                         LocalDateTime rangeStart,
-                                                         LocalDateTime rangeEnd,
-                                                         Boolean onlyAvailable) {
+    public List<Long> findPublicEventIds(String text,
+                                         List<Long> categories,
+                                         Boolean paid,
+                                         LocalDateTime rangeStart,
+                                         LocalDateTime rangeEnd,
+                                         Boolean onlyAvailable) {
 
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-        CriteriaQuery<Event> cq = cb.createQuery(Event.class);
+        CriteriaQuery<Long> cq = cb.createQuery(Long.class);
+        Root<Event> event = cq.from(Event.class);
+
+        List<Predicate> predicates = buildPublicPredicates(cb, event, text, categories, paid,
+                rangeStart, rangeEnd, onlyAvailable);
+
+        cq.select(event.get("id"));
+        cq.where(cb.and(predicates.toArray(new Predicate[0])));
+
+        return entityManager.createQuery(cq).getResultList();
+    }
+
+    @Override
+    public List<EventShortView> findShortViewsInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<EventShortView> cq = cb.createQuery(EventShortView.class);
         Root<Event> event = cq.from(Event.class);
+        cq.select(shortView(cb, event));
+        cq.where(event.get("id").in(ids));
+
+        Map<Long, EventShortView> viewsById = new HashMap<>();
+        entityManager.createQuery(cq)
+                .getResultList()
+                .forEach(view -> viewsById.put(view.getId(), view));
+
+        List<EventShortView> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            EventShortView view = viewsById.get(id);
+            if (view != null) {
+                ordered.add(view);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Проекция события для списков: только колонки, нужные EventShortDto,
+     * без загрузки сущностей Event/Category/User в контекст персистентности
+     */
+    private CompoundSelection<EventShortView> shortView(CriteriaBuilder cb, Root<Event> event) {
+        Join<Event, Category> category = event.join("category", JoinType.INNER);
+        Join<Event, User> initiator = event.join("initiator", JoinType.INNER);
+        return cb.construct(EventShortView.class,
+                event.get("id"),
+                event.get("title"),
+                event.get("annotation"),
+                category.get("id"),
+                category.get("name"),
+                initiator.get("id"),
+                initiator.get("name"),
+                event.get("eventDate"),
+                event.get("paid"),
+                event.get("confirmedRequests"),
+                event.get("ratingScore"));
+    }
+
+    private void fetchCategoryAndInitiator(Root<Event> event) {
+        event.fetch("category", JoinType.INNER);
+        event.fetch("initiator", JoinType.INNER);
+    }
+
+    private List<Order> publicOrder(CriteriaBuilder cb, Root<Event> event, EventSort sort) {
+        if (sort == EventSort.RATING) {
+            return List.of(cb.desc(event.get("ratingScore")), cb.asc(event.get("id")));
+        }
+        return List.of(cb.asc(event.get("eventDate")), cb.asc(event.get("id")));
+    }
 
+    private List<Predicate> buildPublicPredicates(CriteriaBuilder cb,
+                                                  Root<Event> event,
+                                                  String text,
+                                                  List<Long> categories,
+                                                  Boolean paid,
+                                                  LocalDateTime rangeStart,
+                                                  LocalDateTime rangeEnd,
+                                                  Boolean onlyAvailable) {
         List<Predicate> predicates = new ArrayList<>();
 
         predicates.add(cb.equal(event.get("state"), EventState.PUBLISHED));
@@ -173,8 +326,7 @@ public class EventRepositoryCustomImpl implements EventRepositoryCustom {
             );
             predicates.add(cb.or(noLimit, limitNotReached));
         }
-        cq.where(cb.and(predicates.toArray(new Predicate[0])));
 
-        return entityManager.createQuery(cq).getResultList();
+        return predicates;
     }
 }
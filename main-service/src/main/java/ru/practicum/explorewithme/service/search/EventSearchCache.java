@@ -0,0 +1,128 @@
+package ru.practicum.explorewithme.service.search;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.explorewithme.service.cache.AfterCommit;
+import ru.practicum.explorewithme.service.dto.EventShortDto;
+import ru.practicum.explorewithme.service.model.Event;
+import ru.practicum.explorewithme.service.model.EventSort;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Кэш ответов публичного поиска событий по нормализованным параметрам запроса.
+ * Размер ограничен, вытеснение — W-TinyLFU (Caffeine); просмотры и число подтверждённых
+ * заявок в закэшированном ответе могут отставать не больше чем на TTL.
+ * Ключ хранит rangeStart как в запросе; события, начавшиеся после загрузки ответа
+ * без диапазона дат, отбрасывает вызывающий код при чтении.
+ * Публикация и изменение события администратором, а также исчерпание или освобождение
+ * лимита участников сбрасывают кэш после коммита транзакции.
+ */
+@Component
+@Slf4j
+public class EventSearchCache {
+
+    private final boolean enabled;
+    private final Cache<Key, List<EventShortDto>> cache;
+    private final AtomicLong generation = new AtomicLong();
+
+    public EventSearchCache(@Value("${ewm.search.cache.enabled:true}") boolean enabled,
+                            @Value("${ewm.search.cache.max-size:1000}") long maxSize,
+                            @Value("${ewm.search.cache.ttl-seconds:10}") long ttlSeconds) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    /**
+     * Ответ из кэша или результат loader. Ответ, посчитанный во время сброса кэша,
+     * не сохраняется: он мог быть прочитан до коммита изменившей события транзакции.
+     */
+    public List<EventShortDto> get(Key key, Supplier<List<EventShortDto>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+
+        List<EventShortDto> cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        long loadGeneration = generation.get();
+        List<EventShortDto> loaded = List.copyOf(loader.get());
+        if (generation.get() == loadGeneration) {
+            cache.put(key, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * Сбрасывает кэш после коммита текущей транзакции
+     */
+    public void invalidateAll() {
+        if (!enabled) {
+            return;
+        }
+
+        AfterCommit.run(() -> {
+            generation.incrementAndGet();
+            cache.invalidateAll();
+            log.debug("Кэш публичного поиска событий сброшен");
+        });
+    }
+
+    /**
+     * Сбрасывает кэш, если изменение числа подтверждённых заявок перевело событие
+     * между "есть свободные места" и "мест нет" — от этого зависит фильтр onlyAvailable
+     */
+    public void onConfirmedRequestsChanged(Event event, int previousConfirmedRequests) {
+        int limit = event.getParticipantLimit();
+        if (limit == 0) {
+            return;
+        }
+
+        boolean wasAvailable = previousConfirmedRequests < limit;
+        boolean isAvailable = event.getConfirmedRequests() < limit;
+        if (wasAvailable != isAvailable) {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Нормализованные параметры публичного поиска: текст без регистра и крайних пробелов,
+     * категории отсортированы и без повторов, пустые значения приведены к null
+     */
+    public record Key(String text,
+                      List<Long> categories,
+                      Boolean paid,
+                      LocalDateTime rangeStart,
+                      LocalDateTime rangeEnd,
+                      boolean onlyAvailable,
+                      EventSort sort,
+                      int from,
+                      int size) {
+
+        public static Key of(String text, List<Long> categories, Boolean paid,
+                             LocalDateTime rangeStart, LocalDateTime rangeEnd,
+                             boolean onlyAvailable, EventSort sort, int from, int size) {
+            String normalizedText = (text == null || text.isBlank())
+                    ? null
+                    : text.trim().toLowerCase(Locale.ROOT);
+            List<Long> normalizedCategories = (categories == null || categories.isEmpty())
+                    ? null
+                    : categories.stream().distinct().sorted().toList();
+            return new Key(normalizedText, normalizedCategories, paid, rangeStart, rangeEnd,
+                    onlyAvailable, sort, from, size);
+        }
+    }
+}
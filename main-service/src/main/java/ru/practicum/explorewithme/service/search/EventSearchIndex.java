@@ -0,0 +1,397 @@
+package ru.practicum.explorewithme.service.search;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.explorewithme.service.cache.AfterCommit;
+import ru.practicum.explorewithme.service.model.Event;
+import ru.practicum.explorewithme.service.model.EventState;
+import ru.practicum.explorewithme.service.repository.EventRepository;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Инвертированный индекс опубликованных событий в памяти сервиса.
+ * Термы берутся из title/annotation/description, ранжирование для sort=RELEVANCE — BM25,
+ * фильтры по категории и платности пересекаются с постингами как битовые множества.
+ * Пока индекс не построен или выключен, методы поиска возвращают пустой Optional,
+ * и вызывающий код уходит в поиск по БД.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EventSearchIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int TITLE_BOOST = 2;
+    private static final int REBUILD_PAGE_SIZE = 500;
+
+    private final EventRepository eventRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Posting> postings = new HashMap<>();
+    private final Map<Long, Integer> docIdsByEventId = new HashMap<>();
+    private final List<IndexedEvent> docs = new ArrayList<>();
+    private final Deque<Integer> freeDocIds = new ArrayDeque<>();
+    private final BitSet liveDocs = new BitSet();
+    private final BitSet paidDocs = new BitSet();
+    private final Map<Long, BitSet> docsByCategory = new HashMap<>();
+    private long totalLength;
+
+    private volatile boolean ready;
+
+    @Value("${ewm.search.index.enabled:true}")
+    private boolean enabled;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        if (!enabled) {
+            log.info("Поисковый индекс событий отключен, текстовый поиск выполняется в БД");
+            return;
+        }
+
+        long startedAt = System.currentTimeMillis();
+        int indexedCount;
+        int termCount;
+        lock.writeLock().lock();
+        try {
+            clear();
+            int pageNumber = 0;
+            Slice<Event> page;
+            do {
+                page = eventRepository.findAllByState(EventState.PUBLISHED,
+                        PageRequest.of(pageNumber++, REBUILD_PAGE_SIZE, Sort.by("id")));
+                page.forEach(event -> add(IndexedEvent.of(event)));
+            } while (page.hasNext());
+            indexedCount = docIdsByEventId.size();
+            termCount = postings.size();
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("Поисковый индекс событий построен: {} событий, {} термов за {} мс",
+                indexedCount, termCount, System.currentTimeMillis() - startedAt);
+    }
+
+    /**
+     * Обновляет событие в индексе после коммита текущей транзакции.
+     * Опубликованное событие переиндексируется, любое другое удаляется из индекса.
+     */
+    public void index(Event event) {
+        if (!enabled) {
+            return;
+        }
+
+        Long eventId = event.getId();
+        IndexedEvent snapshot = event.getState() == EventState.PUBLISHED ? IndexedEvent.of(event) : null;
+        AfterCommit.run(() -> {
+            lock.writeLock().lock();
+            try {
+                remove(eventId);
+                if (snapshot != null) {
+                    add(snapshot);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Окно from/size событий, подходящих под текст и фильтры, по убыванию релевантности (BM25).
+     * Только для sort=RELEVANCE: остальные сортировки фильтруют text подстрокой
+     * в annotation/description, а не по термам индекса.
+     * @return id событий или пустой Optional, если индекс не может ответить на запрос
+     */
+    public Optional<List<Long>> search(String text, List<Long> categories, Boolean paid,
+                                       LocalDateTime rangeStart, LocalDateTime rangeEnd,
+                                       boolean onlyAvailable, int from, int size) {
+        List<String> terms = EventTextAnalyzer.analyze(text);
+        if (!enabled || !ready || terms.isEmpty()) {
+            return Optional.empty();
+        }
+
+        lock.readLock().lock();
+        try {
+            BitSet matched = match(terms, categories, paid, rangeStart, rangeEnd, onlyAvailable);
+            if (matched.isEmpty()) {
+                return Optional.of(Collections.emptyList());
+            }
+            Map<Long, Double> scores = score(terms, matched);
+            Comparator<IndexedEvent> order = Comparator.<IndexedEvent>comparingDouble(
+                            doc -> scores.get(doc.eventId)).reversed()
+                    .thenComparing(doc -> doc.eventId);
+
+            return Optional.of(selectWindow(matched, order, from, size));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private BitSet match(List<String> terms, List<Long> categories, Boolean paid,
+                         LocalDateTime rangeStart, LocalDateTime rangeEnd, boolean onlyAvailable) {
+        BitSet result = (BitSet) liveDocs.clone();
+
+        for (String term : new HashSet<>(terms)) {
+            Posting posting = postings.get(term);
+            if (posting == null) {
+                return new BitSet();
+            }
+            posting.retainIn(result);
+        }
+
+        if (categories != null && !categories.isEmpty()) {
+            BitSet inCategories = new BitSet();
+            for (Long categoryId : categories) {
+                BitSet categoryDocs = docsByCategory.get(categoryId);
+                if (categoryDocs != null) {
+                    inCategories.or(categoryDocs);
+                }
+            }
+            result.and(inCategories);
+        }
+
+        if (paid != null) {
+            if (paid) {
+                result.and(paidDocs);
+            } else {
+                result.andNot(paidDocs);
+            }
+        }
+
+        if (rangeStart != null || rangeEnd != null || onlyAvailable) {
+            for (int docId = result.nextSetBit(0); docId >= 0; docId = result.nextSetBit(docId + 1)) {
+                IndexedEvent doc = docs.get(docId);
+                boolean accepted = (rangeStart == null || !doc.eventDate.isBefore(rangeStart))
+                        && (rangeEnd == null || !doc.eventDate.isAfter(rangeEnd))
+                        && (!onlyAvailable || doc.participantLimit == 0
+                        || doc.confirmedRequests < doc.participantLimit);
+                if (!accepted) {
+                    result.clear(docId);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private Map<Long, Double> score(List<String> terms, BitSet matched) {
+        int docCount = docIdsByEventId.size();
+        double avgLength = docCount == 0 ? 0 : (double) totalLength / docCount;
+
+        Map<Long, Double> scores = new HashMap<>();
+        for (String term : new HashSet<>(terms)) {
+            Posting posting = postings.get(term);
+            int df = posting.size;
+            double idf = Math.log(1 + (docCount - df + 0.5) / (df + 0.5));
+
+            for (int docId = matched.nextSetBit(0); docId >= 0; docId = matched.nextSetBit(docId + 1)) {
+                IndexedEvent doc = docs.get(docId);
+                int tf = posting.frequency(docId);
+                double norm = K1 * (1 - B + B * doc.length / avgLength);
+                scores.merge(doc.eventId, idf * tf * (K1 + 1) / (tf + norm), Double::sum);
+            }
+        }
+        return scores;
+    }
+
+    private List<Long> selectWindow(BitSet matched, Comparator<IndexedEvent> order, int from, int size) {
+        int matchedCount = matched.cardinality();
+        if (from >= matchedCount) {
+            return Collections.emptyList();
+        }
+        int capacity = (int) Math.min((long) from + size, matchedCount);
+
+        // на вершине кучи — худший из отобранных
+        PriorityQueue<IndexedEvent> top = new PriorityQueue<>(capacity, order.reversed());
+        for (int docId = matched.nextSetBit(0); docId >= 0; docId = matched.nextSetBit(docId + 1)) {
+            IndexedEvent doc = docs.get(docId);
+            if (top.size() < capacity) {
+                top.add(doc);
+            } else if (order.compare(doc, top.peek()) < 0) {
+                top.poll();
+                top.add(doc);
+            }
+        }
+
+        List<Long> ordered = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            ordered.add(top.poll().eventId);
+        }
+        Collections.reverse(ordered);
+
+        return ordered.subList(from, ordered.size());
+    }
+
+    private void add(IndexedEvent doc) {
+        int docId = freeDocIds.isEmpty() ? docs.size() : freeDocIds.pop();
+        if (docId == docs.size()) {
+            docs.add(doc);
+        } else {
+            docs.set(docId, doc);
+        }
+
+        docIdsByEventId.put(doc.eventId, docId);
+        liveDocs.set(docId);
+        if (doc.paid) {
+            paidDocs.set(docId);
+        }
+        docsByCategory.computeIfAbsent(doc.categoryId, id -> new BitSet()).set(docId);
+        doc.termFrequencies.forEach((term, tf) -> postings.computeIfAbsent(term, t -> new Posting()).add(docId, tf));
+        totalLength += doc.length;
+    }
+
+    private void remove(Long eventId) {
+        Integer docId = docIdsByEventId.remove(eventId);
+        if (docId == null) {
+            return;
+        }
+
+        IndexedEvent doc = docs.get(docId);
+        for (String term : doc.termFrequencies.keySet()) {
+            Posting posting = postings.get(term);
+            posting.remove(docId);
+            if (posting.size == 0) {
+                postings.remove(term);
+            }
+        }
+
+        BitSet categoryDocs = docsByCategory.get(doc.categoryId);
+        categoryDocs.clear(docId);
+        if (categoryDocs.isEmpty()) {
+            docsByCategory.remove(doc.categoryId);
+        }
+
+        liveDocs.clear(docId);
+        paidDocs.clear(docId);
+        totalLength -= doc.length;
+        docs.set(docId, null);
+        freeDocIds.push(docId);
+    }
+
+    private void clear() {
+        postings.clear();
+        docIdsByEventId.clear();
+        docs.clear();
+        freeDocIds.clear();
+        liveDocs.clear();
+        paidDocs.clear();
+        docsByCategory.clear();
+        totalLength = 0;
+    }
+
+    /**
+     * Документы терма и частота терма в каждом: параллельные массивы, упорядоченные по docId,
+     * по 8 байт на пару вместо упакованных Integer в HashMap
+     */
+    private static final class Posting {
+        private int[] docIds = new int[2];
+        private int[] frequencies = new int[2];
+        private int size;
+
+        private void add(int docId, int tf) {
+            int index = Arrays.binarySearch(docIds, 0, size, docId);
+            if (index >= 0) {
+                frequencies[index] = tf;
+                return;
+            }
+
+            index = -index - 1;
+            if (size == docIds.length) {
+                int capacity = size + (size >> 1) + 1;
+                docIds = Arrays.copyOf(docIds, capacity);
+                frequencies = Arrays.copyOf(frequencies, capacity);
+            }
+            System.arraycopy(docIds, index, docIds, index + 1, size - index);
+            System.arraycopy(frequencies, index, frequencies, index + 1, size - index);
+            docIds[index] = docId;
+            frequencies[index] = tf;
+            size++;
+        }
+
+        private void remove(int docId) {
+            int index = Arrays.binarySearch(docIds, 0, size, docId);
+            if (index < 0) {
+                return;
+            }
+
+            System.arraycopy(docIds, index + 1, docIds, index, size - index - 1);
+            System.arraycopy(frequencies, index + 1, frequencies, index, size - index - 1);
+            size--;
+            if (docIds.length > 8 && size < docIds.length / 4) {
+                docIds = Arrays.copyOf(docIds, docIds.length / 2);
+                frequencies = Arrays.copyOf(frequencies, frequencies.length / 2);
+            }
+        }
+
+        private int frequency(int docId) {
+            int index = Arrays.binarySearch(docIds, 0, size, docId);
+            return index >= 0 ? frequencies[index] : 0;
+        }
+
+        /**
+         * Оставляет в result только документы терма
+         */
+        private void retainIn(BitSet result) {
+            BitSet retained = new BitSet();
+            for (int i = 0; i < size; i++) {
+                if (result.get(docIds[i])) {
+                    retained.set(docIds[i]);
+                }
+            }
+            result.and(retained);
+        }
+    }
+
+    private static final class IndexedEvent {
+        private final Long eventId;
+        private final Long categoryId;
+        private final boolean paid;
+        private final LocalDateTime eventDate;
+        private final int participantLimit;
+        private final int confirmedRequests;
+        private final Map<String, Integer> termFrequencies;
+        private final int length;
+
+        private IndexedEvent(Event event, Map<String, Integer> termFrequencies, int length) {
+            this.eventId = event.getId();
+            this.categoryId = event.getCategory().getId();
+            this.paid = Boolean.TRUE.equals(event.getPaid());
+            this.eventDate = event.getEventDate();
+            this.participantLimit = event.getParticipantLimit() != null ? event.getParticipantLimit() : 0;
+            this.confirmedRequests = event.getConfirmedRequests() != null ? event.getConfirmedRequests() : 0;
+            this.termFrequencies = termFrequencies;
+            this.length = length;
+        }
+
+        private static IndexedEvent of(Event event) {
+            Map<String, Integer> frequencies = new HashMap<>();
+            int length = 0;
+            for (String term : EventTextAnalyzer.analyze(event.getTitle())) {
+                frequencies.merge(term, TITLE_BOOST, Integer::sum);
+                length += TITLE_BOOST;
+            }
+            for (String term : EventTextAnalyzer.analyze(event.getAnnotation())) {
+                frequencies.merge(term, 1, Integer::sum);
+                length++;
+            }
+            for (String term : EventTextAnalyzer.analyze(event.getDescription())) {
+                frequencies.merge(term, 1, Integer::sum);
+                length++;
+            }
+            return new IndexedEvent(event, frequencies, length);
+        }
+    }
+}
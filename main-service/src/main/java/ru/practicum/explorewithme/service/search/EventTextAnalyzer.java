@@ -0,0 +1,99 @@
+package ru.practicum.explorewithme.service.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Разбиение текста событий на термы для инвертированного индекса.
+ * Приводит к нижнему регистру, заменяет "ё" на "е", отбрасывает стоп-слова
+ * и срезает типовые окончания русских и английских слов.
+ */
+final class EventTextAnalyzer {
+
+    private static final Pattern SPLITTER = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final int MIN_TOKEN_LENGTH = 2;
+    private static final int MIN_STEM_LENGTH = 3;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "и", "в", "во", "не", "что", "он", "на", "я", "с", "со", "как", "а", "то", "все", "она",
+            "так", "его", "но", "да", "ты", "к", "у", "же", "вы", "за", "бы", "по", "только", "ее",
+            "мне", "было", "вот", "от", "меня", "еще", "нет", "о", "из", "ему", "для", "при", "или",
+            "это", "этот", "эта", "эти", "до", "без", "над", "под", "об", "про", "ли",
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "into", "is", "it",
+            "of", "on", "or", "the", "to", "with", "was", "were", "this", "that", "will"
+    );
+
+    // от длинных к коротким: срезается первое подходящее окончание
+    private static final String[] RUSSIAN_ENDINGS = {
+            "иями", "ями", "ами", "ого", "его", "ому", "ему", "ыми", "ими", "ешь", "ете", "ить", "ать",
+            "ять", "ся", "сь", "ах", "ях", "ов", "ев", "ей", "ой", "ий", "ый", "ая", "яя", "ое",
+            "ее", "ые", "ие", "ую", "юю", "ом", "ем", "ам", "ям", "ью", "ия", "ть", "ти",
+            "а", "я", "о", "е", "ы", "и", "у", "ю", "ь", "й"
+    };
+
+    private EventTextAnalyzer() {
+    }
+
+    static List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return terms;
+        }
+
+        String normalized = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        for (String token : SPLITTER.split(normalized)) {
+            if (token.length() < MIN_TOKEN_LENGTH || STOP_WORDS.contains(token)) {
+                continue;
+            }
+            terms.add(stem(token));
+        }
+        return terms;
+    }
+
+    private static String stem(String token) {
+        if (isCyrillic(token)) {
+            return stemRussian(token);
+        }
+        return stemEnglish(token);
+    }
+
+    private static String stemRussian(String token) {
+        for (String ending : RUSSIAN_ENDINGS) {
+            if (token.endsWith(ending) && token.length() - ending.length() >= MIN_STEM_LENGTH) {
+                return token.substring(0, token.length() - ending.length());
+            }
+        }
+        return token;
+    }
+
+    private static String stemEnglish(String token) {
+        if (token.endsWith("ies") && token.length() > 4) {
+            return token.substring(0, token.length() - 3) + "y";
+        }
+        if (token.endsWith("sses")) {
+            return token.substring(0, token.length() - 2);
+        }
+        if (token.endsWith("ing") && token.length() - 3 >= MIN_STEM_LENGTH) {
+            return token.substring(0, token.length() - 3);
+        }
+        if (token.endsWith("ed") && token.length() - 2 >= MIN_STEM_LENGTH) {
+            return token.substring(0, token.length() - 2);
+        }
+        if (token.endsWith("s") && !token.endsWith("ss") && token.length() - 1 >= MIN_STEM_LENGTH) {
+            return token.substring(0, token.length() - 1);
+        }
+        return token;
+    }
+
+    private static boolean isCyrillic(String token) {
+        for (int i = 0; i < token.length(); i++) {
+            if (Character.UnicodeBlock.of(token.charAt(i)) == Character.UnicodeBlock.CYRILLIC) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
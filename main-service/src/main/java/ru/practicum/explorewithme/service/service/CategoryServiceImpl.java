@@ -5,6 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.explorewithme.service.cache.EventDetailCache;
 import ru.practicum.explorewithme.service.dto.CategoryDto;
 import ru.practicum.explorewithme.service.dto.NewCategoryDto;
 import ru.practicum.explorewithme.service.dto.UpdateCategoryDto;
@@ -15,6 +16,7 @@ import ru.practicum.explorewithme.service.mapper.CategoryMapper;
 import ru.practicum.explorewithme.service.model.Category;
 import ru.practicum.explorewithme.service.repository.CategoryRepository;
 import ru.practicum.explorewithme.service.repository.EventRepository;
+import ru.practicum.explorewithme.service.search.EventSearchCache;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -27,6 +29,8 @@ public class CategoryServiceImpl implements CategoryService {
     private final CategoryRepository categoryRepository;
     private final CategoryMapper categoryMapper;
     private final EventRepository eventRepository;
+    private final EventDetailCache eventDetailCache;
+    private final EventSearchCache eventSearchCache;
 
     @Override
     @Transactional
@@ -88,6 +92,8 @@ public class CategoryServiceImpl implements CategoryService {
 
         category.setName(categoryDto.getName());
         Category updatedCategory = categoryRepository.save(category);
+        eventDetailCache.evictAll();
+        eventSearchCache.invalidateAll();
 
         log.info("Категория с id {} успешно обновлена", catId);
         return categoryMapper.toDto(updatedCategory);
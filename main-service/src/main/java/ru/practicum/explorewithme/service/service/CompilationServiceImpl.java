@@ -6,18 +6,18 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.explorewithme.service.dto.CompilationDto;
+import ru.practicum.explorewithme.service.dto.EventShortDto;
 import ru.practicum.explorewithme.service.dto.NewCompilationDto;
 import ru.practicum.explorewithme.service.dto.UpdateCompilationRequest;
 import ru.practicum.explorewithme.service.exception.NotFoundException;
 import ru.practicum.explorewithme.service.mapper.CompilationMapper;
+import ru.practicum.explorewithme.service.mapper.EventMapper;
 import ru.practicum.explorewithme.service.model.Compilation;
 import ru.practicum.explorewithme.service.model.Event;
 import ru.practicum.explorewithme.service.repository.CompilationRepository;
 import ru.practicum.explorewithme.service.repository.EventRepository;
 
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,6 +28,7 @@ public class CompilationServiceImpl implements CompilationService {
     private final CompilationRepository compilationRepository;
     private final EventRepository eventRepository;
     private final CompilationMapper compilationMapper;
+    private final EventMapper eventMapper;
 
     @Override
     @Transactional
@@ -47,7 +48,7 @@ public class CompilationServiceImpl implements CompilationService {
         Compilation savedCompilation = compilationRepository.save(compilation);
 
         log.info("Создана подборка с ID: {}", savedCompilation.getId());
-        return compilationMapper.toDto(savedCompilation);
+        return toDto(savedCompilation);
     }
 
     @Override
@@ -71,7 +72,7 @@ public class CompilationServiceImpl implements CompilationService {
         Compilation updatedCompilation = compilationRepository.save(compilation);
 
         log.info("Подборка с ID: {} обновлена", compId);
-        return compilationMapper.toDto(updatedCompilation);
+        return toDto(updatedCompilation);
     }
 
     @Override
@@ -102,9 +103,7 @@ public class CompilationServiceImpl implements CompilationService {
             compilations = compilationRepository.findAll(pageRequest).getContent();
         }
 
-        return compilations.stream()
-                .map(compilationMapper::toDto)
-                .collect(Collectors.toList());
+        return toDtos(compilations);
     }
 
     @Override
@@ -115,7 +114,47 @@ public class CompilationServiceImpl implements CompilationService {
         Compilation compilation = compilationRepository.findById(compId)
                 .orElseThrow(() -> new NotFoundException("Compilation", compId));
 
-        return compilationMapper.toDto(compilation);
+        return toDto(compilation);
+    }
+
+    private CompilationDto toDto(Compilation compilation) {
+        return toDtos(List.of(compilation)).getFirst();
+    }
+
+    /**
+     * События всех подборок загружаются двумя запросами на весь список:
+     * состав подборок по id и проекции событий для EventShortDto
+     */
+    private List<CompilationDto> toDtos(List<Compilation> compilations) {
+        if (compilations.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Long> compilationIds = compilations.stream()
+                .map(Compilation::getId)
+                .collect(Collectors.toList());
+
+        Map<Long, List<Long>> eventIdsByCompilation = new HashMap<>();
+        Set<Long> eventIds = new LinkedHashSet<>();
+        for (Object[] row : compilationRepository.findEventIdsByCompilationIds(compilationIds)) {
+            Long eventId = (Long) row[1];
+            eventIdsByCompilation.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add(eventId);
+            eventIds.add(eventId);
+        }
+
+        Map<Long, EventShortDto> eventsById = eventRepository.findShortViewsInOrder(new ArrayList<>(eventIds))
+                .stream()
+                .map(eventMapper::toShortDto)
+                .collect(Collectors.toMap(EventShortDto::getId, dto -> dto));
+
+        return compilations.stream()
+                .map(compilation -> compilationMapper.toDto(compilation,
+                        eventIdsByCompilation.getOrDefault(compilation.getId(), Collections.emptyList())
+                                .stream()
+                                .map(eventsById::get)
+                                .filter(Objects::nonNull)
+                                .collect(Collectors.toList())))
+                .collect(Collectors.toList());
     }
 
     private void validatePaginationParams(Integer from, Integer size) {
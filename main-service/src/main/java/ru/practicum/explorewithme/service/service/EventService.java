@@ -24,6 +24,12 @@ public interface EventService {
                                            Integer from, Integer size,
                                            HttpServletRequest request);
 
+    EventCursorPage searchPublicEventsByCursor(String text, List<Long> categories, Boolean paid,
+                                               LocalDateTime rangeStart, LocalDateTime rangeEnd,
+                                               Boolean onlyAvailable, String sort,
+                                               String cursor, Integer size,
+                                               HttpServletRequest request);
+
     EventFullDto getPublicEvent(Long eventId, HttpServletRequest request);
 
     EventFullDto getEventById(Long eventId);
@@ -12,6 +12,7 @@ import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.explorewithme.client.StatsClient;
 import ru.practicum.explorewithme.dto.EndpointHit;
 import ru.practicum.explorewithme.dto.ViewStats;
+import ru.practicum.explorewithme.service.cache.EventDetailCache;
 import ru.practicum.explorewithme.service.dto.*;
 import ru.practicum.explorewithme.service.dto.UpdateEventAdminRequest.StateActionAdmin;
 import ru.practicum.explorewithme.service.dto.UpdateEventUserRequest.StateActionUser;
@@ -21,11 +22,12 @@ import ru.practicum.explorewithme.service.model.*;
 import ru.practicum.explorewithme.service.repository.CategoryRepository;
 import ru.practicum.explorewithme.service.repository.EventRepository;
 import ru.practicum.explorewithme.service.repository.UserRepository;
+import ru.practicum.explorewithme.service.search.EventSearchCache;
+import ru.practicum.explorewithme.service.search.EventSearchIndex;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
@@ -33,11 +35,17 @@ import java.util.stream.Collectors;
 @Slf4j
 public class EventServiceImpl implements EventService {
 
+    private static final String EVENT_URI_PREFIX = "/events/";
+    private static final int STATS_URIS_BATCH_SIZE = 200;
+
     private final EventRepository eventRepository;
     private final UserRepository userRepository;
     private final CategoryRepository categoryRepository;
     private final EventMapper eventMapper;
     private final StatsClient statsClient;
+    private final EventSearchIndex eventSearchIndex;
+    private final EventSearchCache eventSearchCache;
+    private final EventDetailCache eventDetailCache;
 
     @Override
     @Transactional
@@ -72,20 +80,9 @@ public class EventServiceImpl implements EventService {
         validatePaginationParams(from, size);
         Pageable pageable = createPageable(from, size, Sort.by("eventDate").descending());
 
-        Page<Event> eventsPage = eventRepository.findAllByInitiatorId(userId, pageable);
+        Page<EventShortView> eventsPage = eventRepository.findShortViewsByInitiatorId(userId, pageable);
 
-        return eventsPage.stream()
-                .map(event -> {
-                    EventShortDto dto = eventMapper.toShortDto(event);
-                    dto.setViews(getViewsFromStats(event.getId()));
-                    if (dto.getConfirmedRequests() == null) {
-                        dto.setConfirmedRequests(event.getConfirmedRequests() != null ?
-                                event.getConfirmedRequests() : 0);
-                    }
-                    dto.setRatingScore(event.getRatingScore());
-                    return dto;
-                })
-                .collect(Collectors.toList());
+        return toShortDtosWithViews(eventsPage.getContent());
     }
 
     @Override
@@ -139,6 +136,7 @@ public class EventServiceImpl implements EventService {
         }
 
         Event updatedEvent = eventRepository.save(event);
+        eventDetailCache.evict(eventId);
         log.info("Событие с ID: {} обновлено пользователем", eventId);
 
         EventFullDto dto = eventMapper.toFullDto(updatedEvent);
@@ -187,28 +185,119 @@ public class EventServiceImpl implements EventService {
                 size
         );
 
-        return events.stream()
-                .map(event -> {
-                    EventFullDto dto = eventMapper.toFullDto(event);
-                    dto.setViews(getViewsFromStats(event.getId()));
-                    if (dto.getConfirmedRequests() == null) {
-                        dto.setConfirmedRequests(event.getConfirmedRequests() != null ?
-                                event.getConfirmedRequests() : 0);
-                    }
-                    dto.setRatingScore(event.getRatingScore());
-                    return dto;
-                })
-                .collect(Collectors.toList());
+        return toFullDtosWithViews(events);
     }
 
-    private List<Event> sortEventsByViews(List<Event> events) {
-        return events.stream()
-                .sorted((e1, e2) -> {
-                    Long views1 = getViewsFromStats(e1.getId());
-                    Long views2 = getViewsFromStats(e2.getId());
-                    return Long.compare(views2, views1);
-                })
-                .collect(Collectors.toList());
+    @Override
+    @Transactional(readOnly = true)
+    public EventCursorPage searchPublicEventsByCursor(String text, List<Long> categories, Boolean paid,
+                                                      LocalDateTime rangeStart, LocalDateTime rangeEnd,
+                                                      Boolean onlyAvailable, String sort,
+                                                      String cursor, Integer size,
+                                                      HttpServletRequest request) {
+        log.info("Публичный поиск событий по курсору. Text: {}, categories: {}, paid: {}, sort: {}, cursor: {}",
+                text, categories, paid, sort, cursor);
+
+        sendStatsHitForSearch(request);
+
+        size = (size == null) ? 10 : size;
+        if (size <= 0) {
+            throw new IllegalArgumentException("size должен быть положительный");
+        }
+
+        LocalDateTime finalRangeStart = resolvePublicRangeStart(rangeStart, rangeEnd);
+        Boolean onlyAvailableFlag = (onlyAvailable != null) ? onlyAvailable : false;
+        EventSort eventSort = EventSort.from(sort);
+        // просмотры в БД не хранятся: страница по ним требует просмотров всех кандидатов,
+        // а между страницами они меняются, и позиция курсора сдвигается
+        if (eventSort == EventSort.RELEVANCE || eventSort == EventSort.VIEWS) {
+            throw new IllegalArgumentException("Постраничный обход по курсору не поддерживается для сортировки "
+                    + eventSort);
+        }
+
+        EventCursor after = null;
+        if (cursor != null && !cursor.isBlank()) {
+            after = EventCursor.decode(cursor);
+            if (after.getSort() != eventSort) {
+                throw new IllegalArgumentException("Курсор получен для сортировки " + after.getSort()
+                        + " и не подходит для сортировки " + eventSort);
+            }
+        }
+
+        List<EventShortView> events = eventRepository.findPublicEventsAfter(
+                text,
+                categories,
+                paid,
+                finalRangeStart,
+                rangeEnd,
+                onlyAvailableFlag,
+                eventSort,
+                after,
+                size
+        );
+        List<EventShortDto> page = toShortDtosWithViews(events);
+
+        String nextCursor = null;
+        if (page.size() == size) {
+            EventShortDto last = page.getLast();
+            nextCursor = switch (eventSort) {
+                case EVENT_DATE -> EventCursor.afterEventDate(last.getEventDate(), last.getId()).encode();
+                case RATING -> EventCursor.afterRating(last.getRatingScore(), last.getId()).encode();
+                case VIEWS, RELEVANCE -> null;
+            };
+        }
+
+        return new EventCursorPage(page, nextCursor);
+    }
+
+    private LocalDateTime resolvePublicRangeStart(LocalDateTime rangeStart, LocalDateTime rangeEnd) {
+        LocalDateTime finalRangeStart = rangeStart;
+
+        if (rangeStart == null && rangeEnd == null) {
+            finalRangeStart = LocalDateTime.now();
+        }
+
+        if (finalRangeStart != null && rangeEnd != null && finalRangeStart.isAfter(rangeEnd)) {
+            throw new IllegalArgumentException("rangeStart не может быть раньше rangeEnd");
+        }
+
+        return finalRangeStart;
+    }
+
+    /**
+     * Окно from/size из кандидатов, упорядоченных по убыванию просмотров (при равенстве — по id).
+     * Полный список не сортируется: в куче держится не больше from + size лучших элементов.
+     */
+    private List<Long> selectTopByViews(List<Long> candidateIds, Map<Long, Long> views, int from, int size) {
+        long limit = (long) from + size;
+        if (candidateIds.isEmpty() || from >= candidateIds.size()) {
+            return Collections.emptyList();
+        }
+        int capacity = (int) Math.min(limit, candidateIds.size());
+
+        Comparator<Long> byViewsDesc = Comparator
+                .<Long>comparingLong(id -> views.getOrDefault(id, 0L))
+                .reversed()
+                .thenComparing(Comparator.naturalOrder());
+
+        // на вершине кучи — худший из отобранных
+        PriorityQueue<Long> top = new PriorityQueue<>(capacity, byViewsDesc.reversed());
+        for (Long id : candidateIds) {
+            if (top.size() < capacity) {
+                top.add(id);
+            } else if (byViewsDesc.compare(id, top.peek()) < 0) {
+                top.poll();
+                top.add(id);
+            }
+        }
+
+        List<Long> ordered = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            ordered.add(top.poll());
+        }
+        Collections.reverse(ordered);
+
+        return ordered.subList(from, ordered.size());
     }
 
     @Override
@@ -273,6 +362,9 @@ public class EventServiceImpl implements EventService {
         }
 
         Event updatedEvent = eventRepository.save(event);
+        eventSearchIndex.index(updatedEvent);
+        eventSearchCache.invalidateAll();
+        eventDetailCache.evict(eventId);
         log.info("Событие с ID: {} обновлено администратором", eventId);
 
         EventFullDto dto = eventMapper.toFullDto(updatedEvent);
@@ -308,23 +400,40 @@ public class EventServiceImpl implements EventService {
             throw new IllegalArgumentException("from должен быть неотрицательным");
         }
 
-        LocalDateTime finalRangeStart = rangeStart;
+        LocalDateTime finalRangeStart = resolvePublicRangeStart(rangeStart, rangeEnd);
         LocalDateTime finalRangeEnd = rangeEnd;
 
-        if (rangeStart == null && rangeEnd == null) {
-            finalRangeStart = LocalDateTime.now();
-        }
+        Boolean onlyAvailableFlag = (onlyAvailable != null) ? onlyAvailable : false;
 
-        if (finalRangeStart != null && finalRangeEnd != null && finalRangeStart.isAfter(finalRangeEnd)) {
-            throw new IllegalArgumentException("rangeStart не может быть раньше rangeEnd");
+        EventSort eventSort = EventSort.from(sort);
+        if (eventSort == EventSort.RELEVANCE && (text == null || text.isBlank())) {
+            eventSort = EventSort.EVENT_DATE;
         }
 
-        Boolean onlyAvailableFlag = (onlyAvailable != null) ? onlyAvailable : false;
+        EventSearchCache.Key key = EventSearchCache.Key.of(text, categories, paid, rangeStart, rangeEnd,
+                onlyAvailableFlag, eventSort, from, size);
+        EventSort finalSort = eventSort;
+        int finalFrom = from;
+        int finalSize = size;
+        List<EventShortDto> page = eventSearchCache.get(key, () -> findPublicEventsPage(text, categories, paid,
+                finalRangeStart, finalRangeEnd, onlyAvailableFlag, finalSort, finalFrom, finalSize));
 
-        List<Event> events;
+        // без диапазона дат отдаются только будущие события, а ответ из кэша посчитан на момент загрузки
+        if (rangeStart == null && rangeEnd == null) {
+            LocalDateTime now = LocalDateTime.now();
+            page = page.stream()
+                    .filter(event -> event.getEventDate().isAfter(now))
+                    .collect(Collectors.toList());
+        }
+        return page;
+    }
 
-        if ("VIEWS".equals(sort) || "RATING".equals(sort)) {
-            events = eventRepository.findPublicEventsWithoutPagination(
+    private List<EventShortDto> findPublicEventsPage(String text, List<Long> categories, Boolean paid,
+                                                     LocalDateTime finalRangeStart, LocalDateTime finalRangeEnd,
+                                                     Boolean onlyAvailableFlag, EventSort eventSort,
+                                                     int from, int size) {
+        if (eventSort == EventSort.VIEWS) {
+            List<Long> candidateIds = eventRepository.findPublicEventIds(
                     text,
                     categories,
                     paid,
@@ -333,28 +442,22 @@ public class EventServiceImpl implements EventService {
                     onlyAvailableFlag
             );
 
-            if (finalRangeStart != null && finalRangeStart.isEqual(LocalDateTime.now())) {
-                events = events.stream()
-                        .filter(event -> event.getEventDate().isAfter(LocalDateTime.now()))
-                        .collect(Collectors.toList());
-            }
+            Map<Long, Long> views = getViewsFromStats(candidateIds);
+            List<Long> pageIds = selectTopByViews(candidateIds, views, from, size);
 
-            if ("VIEWS".equals(sort)) {
-                events = sortEventsByViews(events);
-            } else { // RATING
-                events = sortEventsByRating(events);
-            }
+            return toShortDtosWithViews(eventRepository.findShortViewsInOrder(pageIds), views);
+        }
 
-            int toIndex = Math.min(from + size, events.size());
-            if (from < events.size()) {
-                events = events.subList(from, toIndex);
-            } else {
-                events = Collections.emptyList();
+        if (eventSort == EventSort.RELEVANCE) {
+            // индекс ищет по термам, как и полнотекстовый поиск в БД; остальные сортировки — по подстроке
+            Optional<List<Long>> indexedIds = eventSearchIndex.search(text, categories, paid,
+                    finalRangeStart, finalRangeEnd, onlyAvailableFlag, from, size);
+            if (indexedIds.isPresent()) {
+                return toShortDtosWithViews(eventRepository.findShortViewsInOrder(indexedIds.get()));
             }
 
-        } else {
-            events = eventRepository.findPublicEvents(
-                    text,
+            return toShortDtosWithViews(eventRepository.findPublicEventsByRelevance(
+                    text.trim(),
                     categories,
                     paid,
                     finalRangeStart,
@@ -362,56 +465,47 @@ public class EventServiceImpl implements EventService {
                     onlyAvailableFlag,
                     from,
                     size
-            );
-
-            if (finalRangeStart != null && finalRangeStart.isEqual(LocalDateTime.now())) {
-                events = events.stream()
-                        .filter(event -> event.getEventDate().isAfter(LocalDateTime.now()))
-                        .collect(Collectors.toList());
-            }
+            ));
         }
 
-        return events.stream()
-                .map(event -> {
-                    EventShortDto dto = eventMapper.toShortDto(event);
-                    dto.setViews(getViewsFromStats(event.getId()));
+        List<EventShortView> events = eventRepository.findPublicEvents(
+                text,
+                categories,
+                paid,
+                finalRangeStart,
+                finalRangeEnd,
+                onlyAvailableFlag,
+                eventSort,
+                from,
+                size
+        );
 
-                    if (dto.getConfirmedRequests() == null) {
-                        dto.setConfirmedRequests(event.getConfirmedRequests() != null ?
-                                event.getConfirmedRequests() : 0);
-                    }
-                    dto.setRatingScore(event.getRatingScore());
-                    return dto;
-                })
-                .collect(Collectors.toList());
-    }
+        if (finalRangeStart != null && finalRangeStart.isEqual(LocalDateTime.now())) {
+            events = events.stream()
+                    .filter(event -> event.getEventDate().isAfter(LocalDateTime.now()))
+                    .collect(Collectors.toList());
+        }
 
-    private List<Event> sortEventsByRating(List<Event> events) {
-        return events.stream()
-                .sorted((e1, e2) -> {
-                    long rating1 = e1.getRatingScore();
-                    long rating2 = e2.getRatingScore();
-                    return Long.compare(rating2, rating1); // по убыванию
-                })
-                .collect(Collectors.toList());
+        return toShortDtosWithViews(events);
     }
 
     @Override
     public EventFullDto getPublicEvent(Long eventId, HttpServletRequest request) {
         log.info("Публичный запрос события с ID: {}", eventId);
 
-        Event event = eventRepository.findById(eventId)
-                .orElseThrow(() -> new NotFoundException("Событие с id=" + eventId + " не найдено"));
+        EventFullDto dto = eventDetailCache.get(eventId, () -> {
+            Event event = eventRepository.findById(eventId)
+                    .orElseThrow(() -> new NotFoundException("Событие с id=" + eventId + " не найдено"));
 
-        if (event.getState() != EventState.PUBLISHED) {
-            throw new NotFoundException("Событие с id=" + eventId + " не найдено");
-        }
+            if (event.getState() != EventState.PUBLISHED) {
+                throw new NotFoundException("Событие с id=" + eventId + " не найдено");
+            }
+
+            return eventMapper.toFullDto(event);
+        });
 
-        Long currentViews = getViewsFromStats(eventId);
         sendStatsHit(eventId, request);
-        EventFullDto dto = eventMapper.toFullDto(event);
-        dto.setViews(currentViews + 1);
-        dto.setRatingScore(event.getRatingScore());
+        dto.setViews(eventDetailCache.getViews(eventId, getClientIp(request), () -> getViewsFromStats(eventId)));
 
         return dto;
     }
@@ -456,32 +550,88 @@ public class EventServiceImpl implements EventService {
         }
     }
 
-    private Long getViewsFromStats(Long eventId) {
-        try {
-            LocalDateTime start = LocalDateTime.now().minusYears(100);
-            LocalDateTime end = LocalDateTime.now().plusYears(100);
-            List<String> uris = List.of("/events/" + eventId);
+    private List<EventShortDto> toShortDtosWithViews(List<EventShortView> events) {
+        Map<Long, Long> views = getViewsFromStats(events.stream()
+                .map(EventShortView::getId)
+                .collect(Collectors.toList()));
 
-            String startStr = start.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-            String endStr = end.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+        return toShortDtosWithViews(events, views);
+    }
 
-            log.debug("Запрос статистики для события {}: uris={}, start={}, end={}, unique=true",
-                    eventId, uris, startStr, endStr);
+    private List<EventShortDto> toShortDtosWithViews(List<EventShortView> events, Map<Long, Long> views) {
+        return events.stream()
+                .map(event -> {
+                    EventShortDto dto = eventMapper.toShortDto(event);
+                    dto.setViews(views.getOrDefault(event.getId(), 0L));
+                    return dto;
+                })
+                .collect(Collectors.toList());
+    }
+
+    private List<EventFullDto> toFullDtosWithViews(List<Event> events) {
+        Map<Long, Long> views = getViewsFromStats(events.stream()
+                .map(Event::getId)
+                .collect(Collectors.toList()));
+
+        return events.stream()
+                .map(event -> {
+                    EventFullDto dto = eventMapper.toFullDto(event);
+                    dto.setViews(views.getOrDefault(event.getId(), 0L));
+                    if (dto.getConfirmedRequests() == null) {
+                        dto.setConfirmedRequests(event.getConfirmedRequests() != null ?
+                                event.getConfirmedRequests() : 0);
+                    }
+                    dto.setRatingScore(event.getRatingScore());
+                    return dto;
+                })
+                .collect(Collectors.toList());
+    }
 
-            List<ViewStats> stats = statsClient.getStats(startStr, endStr, uris, true);
+    private Long getViewsFromStats(Long eventId) {
+        return getViewsFromStats(List.of(eventId)).getOrDefault(eventId, 0L);
+    }
 
-            if (stats != null && !stats.isEmpty()) {
-                Long hits = stats.getFirst().getHits();
-                log.debug("Событие {} имеет {} уникальных просмотров", eventId, hits);
-                return hits;
-            } else {
-                log.debug("Статистика для события {} не найдена", eventId);
-                return 0L;
+    /**
+     * Уникальные просмотры за всё время для набора событий за один запрос к сервису статистики.
+     * Длинные списки режутся на пачки по {@value #STATS_URIS_BATCH_SIZE} URI,
+     * чтобы строка запроса не упиралась в лимит размера заголовка.
+     * @param eventIds идентификаторы событий
+     * @return просмотры по id события; события без статистики в карту не попадают
+     */
+    private Map<Long, Long> getViewsFromStats(Collection<Long> eventIds) {
+        Map<Long, Long> views = new HashMap<>();
+        if (eventIds == null || eventIds.isEmpty()) {
+            return views;
+        }
+
+        Map<String, Long> eventIdsByUri = new LinkedHashMap<>();
+        for (Long eventId : eventIds) {
+            eventIdsByUri.put(EVENT_URI_PREFIX + eventId, eventId);
+        }
+        List<String> uris = new ArrayList<>(eventIdsByUri.keySet());
+
+        for (int i = 0; i < uris.size(); i += STATS_URIS_BATCH_SIZE) {
+            List<String> batch = uris.subList(i, Math.min(i + STATS_URIS_BATCH_SIZE, uris.size()));
+            try {
+                log.debug("Запрос статистики за всё время для {} событий, unique=true", batch.size());
+
+                List<ViewStats> stats = statsClient.getLifetimeStats(batch, true);
+                if (stats == null) {
+                    continue;
+                }
+                for (ViewStats viewStats : stats) {
+                    Long eventId = eventIdsByUri.get(viewStats.getUri());
+                    if (eventId != null && viewStats.getHits() != null) {
+                        views.merge(eventId, viewStats.getHits(), Math::max);
+                    }
+                }
+            } catch (Exception e) {
+                log.error("Ошибка при получении статистики для событий {}: {}", batch, e.getMessage());
             }
-        } catch (Exception e) {
-            log.error("Ошибка при получении статистики для события {}: {}", eventId, e.getMessage());
-            return 0L;
         }
+
+        log.debug("Получены просмотры для {} из {} событий", views.size(), eventIdsByUri.size());
+        return views;
     }
 
     private void updateEventFieldsFromUserRequest(Event event, UpdateEventUserRequest updateRequest) {
@@ -575,7 +725,7 @@ public class EventServiceImpl implements EventService {
 
             EndpointHit endpointHit = new EndpointHit();
             endpointHit.setApp("ewm-main-service");
-            endpointHit.setUri("/events/" + eventId);
+            endpointHit.setUri(EVENT_URI_PREFIX + eventId);
             endpointHit.setIp(ipAddress);
             endpointHit.setTimestamp(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
 
@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.explorewithme.service.cache.EventDetailCache;
 import ru.practicum.explorewithme.service.dto.EventRequestStatusUpdateRequest;
 import ru.practicum.explorewithme.service.dto.EventRequestStatusUpdateRequest.StatusAction;
 import ru.practicum.explorewithme.service.dto.EventRequestStatusUpdateResult;
@@ -14,6 +15,8 @@ import ru.practicum.explorewithme.service.model.*;
 import ru.practicum.explorewithme.service.repository.EventRepository;
 import ru.practicum.explorewithme.service.repository.ParticipationRequestRepository;
 import ru.practicum.explorewithme.service.repository.UserRepository;
+import ru.practicum.explorewithme.service.search.EventSearchCache;
+import ru.practicum.explorewithme.service.search.EventSearchIndex;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -29,6 +32,9 @@ public class ParticipationRequestServiceImpl implements ParticipationRequestServ
     private final EventRepository eventRepository;
     private final UserRepository userRepository;
     private final ParticipationRequestMapper requestMapper;
+    private final EventSearchIndex eventSearchIndex;
+    private final EventSearchCache eventSearchCache;
+    private final EventDetailCache eventDetailCache;
 
     @Override
     @Transactional
@@ -71,8 +77,12 @@ public class ParticipationRequestServiceImpl implements ParticipationRequestServ
 
         if (!event.getRequestModeration() || event.getParticipantLimit() == 0) {
             request.setStatus(RequestStatus.CONFIRMED);
-            event.setConfirmedRequests(event.getConfirmedRequests() + 1);
+            int previousConfirmed = event.getConfirmedRequests();
+            event.setConfirmedRequests(previousConfirmed + 1);
             eventRepository.save(event);
+            eventSearchIndex.index(event);
+            eventSearchCache.onConfirmedRequestsChanged(event, previousConfirmed);
+            eventDetailCache.onConfirmedRequestsChanged(event, previousConfirmed);
         }
 
         ParticipationRequest savedRequest = requestRepository.save(request);
@@ -114,8 +124,12 @@ public class ParticipationRequestServiceImpl implements ParticipationRequestServ
 
         if (request.getStatus() == RequestStatus.CONFIRMED) {
             Event event = request.getEvent();
-            event.setConfirmedRequests(event.getConfirmedRequests() - 1);
+            int previousConfirmed = event.getConfirmedRequests();
+            event.setConfirmedRequests(previousConfirmed - 1);
             eventRepository.save(event);
+            eventSearchIndex.index(event);
+            eventSearchCache.onConfirmedRequestsChanged(event, previousConfirmed);
+            eventDetailCache.onConfirmedRequestsChanged(event, previousConfirmed);
         }
 
         request.setStatus(RequestStatus.CANCELED);
@@ -182,7 +196,8 @@ public class ParticipationRequestServiceImpl implements ParticipationRequestServ
     private void processConfirmedRequests(Event event, List<ParticipationRequest> requests,
                                           List<ParticipationRequestDto> confirmedRequests,
                                           List<ParticipationRequestDto> rejectedRequests) {
-        int confirmedCount = event.getConfirmedRequests();
+        int previousConfirmed = event.getConfirmedRequests();
+        int confirmedCount = previousConfirmed;
         int participantLimit = event.getParticipantLimit();
 
         for (ParticipationRequest request : requests) {
@@ -197,6 +212,9 @@ public class ParticipationRequestServiceImpl implements ParticipationRequestServ
 
         event.setConfirmedRequests(confirmedCount);
         eventRepository.save(event);
+        eventSearchIndex.index(event);
+        eventSearchCache.onConfirmedRequestsChanged(event, previousConfirmed);
+        eventDetailCache.onConfirmedRequestsChanged(event, previousConfirmed);
         requestRepository.saveAll(requests);
 
         if (participantLimit > 0 && confirmedCount >= participantLimit) {
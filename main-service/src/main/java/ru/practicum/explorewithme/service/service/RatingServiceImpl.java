@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.explorewithme.service.cache.EventDetailCache;
 import ru.practicum.explorewithme.service.dto.EventRatingStatsDto;
 import ru.practicum.explorewithme.service.dto.RatingDto;
 import ru.practicum.explorewithme.service.exception.ConflictException;
@@ -30,6 +31,7 @@ public class RatingServiceImpl implements RatingService {
     private final UserRepository userRepository;
     private final ParticipationRequestRepository participationRequestRepository;
     private final RatingMapper ratingMapper;
+    private final EventDetailCache eventDetailCache;
 
     @Override
     @Transactional
@@ -129,6 +131,7 @@ public class RatingServiceImpl implements RatingService {
         eventRepository.findById(eventId).ifPresent(event -> {
             event.setRatingScore(totalRating);
             eventRepository.save(event);
+            eventDetailCache.evict(eventId);
             log.debug("Обновлен рейтинг события {}: {}", eventId, totalRating);
         });
     }
@@ -0,0 +1,112 @@
+package ru.practicum.explorewithme.service.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.explorewithme.service.dto.EventFullDto;
+import ru.practicum.explorewithme.service.model.Event;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventDetailCacheTest {
+
+    private final EventDetailCache cache = new EventDetailCache(true, 100, 300, 60);
+    private final AtomicInteger loads = new AtomicInteger();
+    private int storedConfirmed = 2;
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void confirmedRequestsChangeIsAddedToCachedCard() {
+        assertThat(get().getConfirmedRequests()).isEqualTo(2);
+
+        storedConfirmed = 3;
+        cache.onConfirmedRequestsChanged(event(3), 2);
+        storedConfirmed = 1;
+        cache.onConfirmedRequestsChanged(event(1), 3);
+
+        assertThat(get().getConfirmedRequests()).isEqualTo(1);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void confirmedRequestsChangesCommute() {
+        get();
+        TransactionSynchronizationManager.initSynchronization();
+        cache.onConfirmedRequestsChanged(event(3), 2);
+        cache.onConfirmedRequestsChanged(event(4), 3);
+
+        // коммиты в обратном порядке
+        TransactionSynchronizationManager.getSynchronizations().reversed()
+                .forEach(TransactionSynchronization::afterCommit);
+
+        assertThat(get().getConfirmedRequests()).isEqualTo(4);
+    }
+
+    @Test
+    void changeIsAppliedOnlyAfterCommit() {
+        get();
+        TransactionSynchronizationManager.initSynchronization();
+        cache.onConfirmedRequestsChanged(event(3), 2);
+
+        assertThat(get().getConfirmedRequests()).isEqualTo(2);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertThat(get().getConfirmedRequests()).isEqualTo(3);
+    }
+
+    @Test
+    void cardLoadedDuringChangeIsReloadedAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        cache.onConfirmedRequestsChanged(event(3), 2);
+        // карточка загружена до коммита, но могла прочитать уже новое число
+        storedConfirmed = 3;
+        get();
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        assertThat(get().getConfirmedRequests()).isEqualTo(3);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void viewsAreCountedPerNewIpUntilReload() {
+        get();
+        AtomicInteger statsCalls = new AtomicInteger();
+
+        assertThat(cache.getViews(1L, "10.0.0.1", () -> statsCalls.incrementAndGet() * 10L)).isEqualTo(11);
+        assertThat(cache.getViews(1L, "10.0.0.1", () -> statsCalls.incrementAndGet() * 10L)).isEqualTo(11);
+        assertThat(cache.getViews(1L, "10.0.0.2", () -> statsCalls.incrementAndGet() * 10L)).isEqualTo(12);
+        assertThat(statsCalls).hasValue(1);
+    }
+
+    @Test
+    void viewsWithoutCachedCardComeFromLoader() {
+        assertThat(cache.getViews(1L, "10.0.0.1", () -> 7L)).isEqualTo(7);
+    }
+
+    private EventFullDto get() {
+        return cache.get(1L, () -> {
+            loads.incrementAndGet();
+            EventFullDto dto = new EventFullDto();
+            dto.setId(1L);
+            dto.setConfirmedRequests(storedConfirmed);
+            return dto;
+        });
+    }
+
+    private static Event event(int confirmedRequests) {
+        Event event = new Event();
+        event.setId(1L);
+        event.setConfirmedRequests(confirmedRequests);
+        return event;
+    }
+}
@@ -0,0 +1,105 @@
+package ru.practicum.explorewithme.service.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.practicum.explorewithme.service.model.Category;
+import ru.practicum.explorewithme.service.model.Event;
+import ru.practicum.explorewithme.service.model.EventState;
+import ru.practicum.explorewithme.service.repository.EventRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class EventSearchIndexTest {
+
+    @Mock
+    private EventRepository eventRepository;
+
+    private EventSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new EventSearchIndex(eventRepository);
+        ReflectionTestUtils.setField(index, "enabled", true);
+    }
+
+    @Test
+    void termInTitleRanksAboveTermInDescription() {
+        rebuild(event(1L, "Вечер поэзии", "Концерт джаза в парке"),
+                event(2L, "Джаз в парке", "Вечер под открытым небом"));
+
+        assertThat(search("джаз")).containsExactly(2L, 1L);
+        // при равной релевантности — по id
+        assertThat(search("джаз вечер")).containsExactly(1L, 2L);
+        assertThat(search("поэзии")).containsExactly(1L);
+        assertThat(search("опера")).isEmpty();
+    }
+
+    @Test
+    void unpublishedEventIsRemovedFromPostings() {
+        rebuild(event(1L, "Джаз", "Концерт"), event(2L, "Джаз", "Лекция"));
+
+        Event cancelled = event(1L, "Джаз", "Концерт");
+        cancelled.setState(EventState.CANCELED);
+        index.index(cancelled);
+
+        assertThat(search("джаз")).containsExactly(2L);
+        assertThat(search("концерт")).isEmpty();
+    }
+
+    @Test
+    void reusedDocIdDoesNotKeepOldTerms() {
+        rebuild(LongStream.rangeClosed(1, 20)
+                .mapToObj(id -> event(id, "Событие " + id, "Лекция"))
+                .toArray(Event[]::new));
+
+        for (long id = 1; id <= 20; id += 2) {
+            Event cancelled = event(id, "Событие " + id, "Лекция");
+            cancelled.setState(EventState.CANCELED);
+            index.index(cancelled);
+        }
+        index.index(event(21L, "Джаз", "Концерт"));
+        index.index(event(22L, "Джаз", "Лекция"));
+
+        assertThat(search("лекция")).containsExactlyInAnyOrder(2L, 4L, 6L, 8L, 10L, 12L, 14L, 16L, 18L, 20L, 22L);
+        assertThat(search("джаз")).containsExactlyInAnyOrder(21L, 22L);
+        assertThat(search("концерт")).containsExactly(21L);
+    }
+
+    private void rebuild(Event... events) {
+        when(eventRepository.findAllByState(eq(EventState.PUBLISHED), any()))
+                .thenReturn(new SliceImpl<>(List.of(events)));
+        index.rebuild();
+    }
+
+    private List<Long> search(String text) {
+        return index.search(text, null, null, null, null, false, 0, 100).orElseThrow();
+    }
+
+    private static Event event(Long id, String title, String description) {
+        return Event.builder()
+                .id(id)
+                .title(title)
+                .annotation("")
+                .description(description)
+                .category(Category.builder().id(1L).build())
+                .paid(false)
+                .eventDate(LocalDateTime.now().plusDays(1))
+                .participantLimit(0)
+                .confirmedRequests(0)
+                .state(EventState.PUBLISHED)
+                .build();
+    }
+}
@@ -0,0 +1,54 @@
+package ru.practicum.explorewithme.service.search;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventTextAnalyzerTest {
+
+    @Test
+    void emptyTextHasNoTerms() {
+        assertThat(EventTextAnalyzer.analyze(null)).isEmpty();
+        assertThat(EventTextAnalyzer.analyze("   ")).isEmpty();
+    }
+
+    @Test
+    void textIsLowercasedAndSplitOnNonLetters() {
+        assertThat(EventTextAnalyzer.analyze("Jazz-FEST, 2024!")).containsExactly("jazz", "fest", "2024");
+    }
+
+    @Test
+    void stopWordsAndShortTokensAreDropped() {
+        assertThat(EventTextAnalyzer.analyze("Концерт в парке и the show x")).containsExactly("концерт", "парк", "show");
+    }
+
+    @Test
+    void yoIsFoldedToYe() {
+        assertThat(EventTextAnalyzer.analyze("Ёлка")).isEqualTo(EventTextAnalyzer.analyze("елка"));
+    }
+
+    @Test
+    void russianWordFormsShareStem() {
+        assertThat(EventTextAnalyzer.analyze("концерт концерты концертов концертами"))
+                .containsOnly("концерт");
+        assertThat(EventTextAnalyzer.analyze("джазовый джазовая джазового"))
+                .containsOnly("джазов");
+    }
+
+    @Test
+    void russianStemKeepsAtLeastThreeLetters() {
+        assertThat(EventTextAnalyzer.analyze("сад сады")).containsExactly("сад", "сад");
+        assertThat(EventTextAnalyzer.analyze("ими")).containsExactly("ими");
+    }
+
+    @Test
+    void englishSuffixesAreStripped() {
+        assertThat(EventTextAnalyzer.analyze("parties classes dancing played festivals"))
+                .containsExactly("party", "class", "danc", "play", "festival");
+    }
+
+    @Test
+    void shortEnglishWordsKeepSuffix() {
+        assertThat(EventTextAnalyzer.analyze("bus red sing")).containsExactly("bus", "red", "sing");
+    }
+}
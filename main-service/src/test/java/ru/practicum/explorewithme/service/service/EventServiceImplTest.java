@@ -0,0 +1,255 @@
+package ru.practicum.explorewithme.service.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import ru.practicum.explorewithme.client.StatsClient;
+import ru.practicum.explorewithme.dto.EndpointHit;
+import ru.practicum.explorewithme.dto.ViewStats;
+import ru.practicum.explorewithme.service.cache.EventDetailCache;
+import ru.practicum.explorewithme.service.dto.EventFullDto;
+import ru.practicum.explorewithme.service.dto.EventShortDto;
+import ru.practicum.explorewithme.service.dto.EventShortView;
+import ru.practicum.explorewithme.service.exception.NotFoundException;
+import ru.practicum.explorewithme.service.mapper.EventMapper;
+import ru.practicum.explorewithme.service.model.Event;
+import ru.practicum.explorewithme.service.model.EventSort;
+import ru.practicum.explorewithme.service.model.EventState;
+import ru.practicum.explorewithme.service.repository.CategoryRepository;
+import ru.practicum.explorewithme.service.repository.EventRepository;
+import ru.practicum.explorewithme.service.repository.UserRepository;
+import ru.practicum.explorewithme.service.search.EventSearchCache;
+import ru.practicum.explorewithme.service.search.EventSearchIndex;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EventServiceImplTest {
+
+    @Mock
+    private EventRepository eventRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private CategoryRepository categoryRepository;
+    @Mock
+    private EventMapper eventMapper;
+    @Mock
+    private StatsClient statsClient;
+    @Mock
+    private EventSearchIndex eventSearchIndex;
+
+    private EventServiceImpl eventService;
+
+    // уникальные просмотры /events/1 в сервисе статистики; хиты отправляются асинхронно и сюда не попадают
+    private final AtomicLong statsViews = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        eventService = serviceWithViewsTtl(60);
+
+        lenient().when(eventMapper.toShortDto(any(EventShortView.class))).thenAnswer(invocation -> {
+            EventShortView view = invocation.getArgument(0);
+            EventShortDto dto = new EventShortDto();
+            dto.setId(view.getId());
+            dto.setEventDate(view.getEventDate());
+            return dto;
+        });
+    }
+
+    @Test
+    void textSearchByDateMatchesSubstringInRepository() {
+        when(eventRepository.findPublicEvents(eq("Концерт"), any(), any(), any(), any(), eq(false),
+                eq(EventSort.EVENT_DATE), eq(0), eq(10)))
+                .thenReturn(List.of(view(1L), view(2L)));
+
+        List<EventShortDto> result = eventService.searchPublicEvents("Концерт", null, null, null, null,
+                null, "EVENT_DATE", 0, 10, searchRequest("text=%D0%9A%D0%BE%D0%BD%D1%86%D0%B5%D1%80%D1%82"));
+
+        assertThat(result).extracting(EventShortDto::getId).containsExactly(1L, 2L);
+        verifyNoInteractions(eventSearchIndex);
+    }
+
+    @Test
+    void textSearchByViewsFiltersInRepositoryAndOrdersByViews() {
+        when(eventRepository.findPublicEventIds(eq("jazz"), any(), any(), any(), any(), eq(false)))
+                .thenReturn(List.of(1L, 2L, 3L));
+        when(statsClient.getLifetimeStats(anyList(), eq(true))).thenReturn(List.of(
+                new ViewStats("ewm-main-service", "/events/2", 5L),
+                new ViewStats("ewm-main-service", "/events/3", 7L)));
+        when(eventRepository.findShortViewsInOrder(List.of(3L, 2L, 1L)))
+                .thenReturn(List.of(view(3L), view(2L), view(1L)));
+
+        List<EventShortDto> result = eventService.searchPublicEvents("jazz", null, null, null, null,
+                null, "VIEWS", 0, 10, searchRequest("text=jazz&sort=VIEWS"));
+
+        assertThat(result).extracting(EventShortDto::getId).containsExactly(3L, 2L, 1L);
+        assertThat(result).extracting(EventShortDto::getViews).containsExactly(7L, 5L, 0L);
+        verifyNoInteractions(eventSearchIndex);
+    }
+
+    @Test
+    void cachedDefaultListingHidesStartedEvents() {
+        eventService = new EventServiceImpl(eventRepository, userRepository, categoryRepository, eventMapper,
+                statsClient, eventSearchIndex, new EventSearchCache(true, 10, 60),
+                new EventDetailCache(true, 100, 300, 60));
+        EventShortView started = new EventShortView(1L, "Событие 1", "Аннотация", 1L, "Концерты", 1L,
+                "Организатор", LocalDateTime.now().plusNanos(200_000_000), false, 0, 0);
+        when(eventRepository.findPublicEvents(any(), any(), any(), any(), any(), any(), any(), anyInt(), anyInt()))
+                .thenReturn(List.of(started, view(2L)));
+        assertThat(eventService.searchPublicEvents(null, null, null, null, null,
+                null, null, 0, 10, searchRequest(null))).extracting(EventShortDto::getId).containsExactly(1L, 2L);
+
+        await(started.getEventDate());
+
+        assertThat(eventService.searchPublicEvents(null, null, null, null, null,
+                null, null, 0, 10, searchRequest(null))).extracting(EventShortDto::getId).containsExactly(2L);
+        verify(eventRepository, times(1))
+                .findPublicEvents(any(), any(), any(), any(), any(), any(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    void relevanceWithoutTextFallsBackToDate() {
+        when(eventRepository.findPublicEvents(isNull(), any(), any(), any(), any(), eq(false),
+                eq(EventSort.EVENT_DATE), eq(0), eq(10)))
+                .thenReturn(List.of());
+
+        assertThat(eventService.searchPublicEvents(null, null, null, null, null,
+                null, "RELEVANCE", 0, 10, searchRequest(null))).isEmpty();
+        verifyNoInteractions(eventSearchIndex);
+    }
+
+    @Test
+    void searchSendsHitWithQueryString() {
+        when(eventRepository.findPublicEvents(any(), any(), any(), any(), any(), any(), any(), anyInt(), anyInt()))
+                .thenReturn(List.of());
+
+        eventService.searchPublicEvents("jazz", null, null, null, null,
+                null, null, 0, 10, searchRequest("text=jazz"));
+
+        verify(statsClient).hit(argThat((EndpointHit hit) -> "/events?text=jazz".equals(hit.getUri())
+                && "10.0.0.1".equals(hit.getIp())));
+    }
+
+    @Test
+    void cursorPagingIsRejectedForViewsSort() {
+        assertThrows(IllegalArgumentException.class, () -> eventService.searchPublicEventsByCursor(null, null,
+                null, null, null, null, "VIEWS", null, 10, searchRequest("sort=VIEWS")));
+        verifyNoInteractions(eventRepository);
+    }
+
+    @Test
+    void firstViewCountsCallersHit() {
+        stubPublishedEvent();
+
+        EventFullDto dto = eventService.getPublicEvent(1L, eventRequest("10.0.0.1"));
+
+        assertThat(dto.getViews()).isEqualTo(1L);
+        verify(statsClient).hit(argThat(hit -> "/events/1".equals(hit.getUri())
+                && "10.0.0.1".equals(hit.getIp())));
+    }
+
+    @Test
+    void repeatedViewFromSameIpIsNotCountedTwice() {
+        stubPublishedEvent();
+
+        assertThat(eventService.getPublicEvent(1L, eventRequest("10.0.0.1")).getViews()).isEqualTo(1L);
+        assertThat(eventService.getPublicEvent(1L, eventRequest("10.0.0.1")).getViews()).isEqualTo(1L);
+
+        verify(statsClient, times(2)).hit(any());
+        verify(statsClient, times(1)).getLifetimeStats(anyList(), eq(true));
+        verify(eventRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void viewFromNewIpIsCountedWithoutStatsRoundTrip() {
+        stubPublishedEvent();
+
+        assertThat(eventService.getPublicEvent(1L, eventRequest("10.0.0.1")).getViews()).isEqualTo(1L);
+        assertThat(eventService.getPublicEvent(1L, eventRequest("10.0.0.2")).getViews()).isEqualTo(2L);
+        assertThat(eventService.getPublicEvent(1L, eventRequest("10.0.0.1")).getViews()).isEqualTo(2L);
+
+        verify(statsClient, times(1)).getLifetimeStats(anyList(), eq(true));
+    }
+
+    @Test
+    void expiredViewsAreReloadedFromStats() {
+        eventService = serviceWithViewsTtl(0);
+        stubPublishedEvent();
+        assertThat(eventService.getPublicEvent(1L, eventRequest("10.0.0.1")).getViews()).isEqualTo(1L);
+
+        statsViews.set(10);
+
+        assertThat(eventService.getPublicEvent(1L, eventRequest("10.0.0.1")).getViews()).isEqualTo(10L);
+        assertThat(eventService.getPublicEvent(1L, eventRequest("10.0.0.2")).getViews()).isEqualTo(11L);
+    }
+
+    @Test
+    void unpublishedEventIsNotFoundAndNotCounted() {
+        Event event = new Event();
+        event.setId(1L);
+        event.setState(EventState.PENDING);
+        when(eventRepository.findById(1L)).thenReturn(Optional.of(event));
+
+        assertThrows(NotFoundException.class, () -> eventService.getPublicEvent(1L, eventRequest("10.0.0.1")));
+        verifyNoInteractions(statsClient);
+    }
+
+    /**
+     * Опубликованное событие 1 и его просмотры в сервисе статистики
+     */
+    private void stubPublishedEvent() {
+        Event event = new Event();
+        event.setId(1L);
+        event.setState(EventState.PUBLISHED);
+        when(eventRepository.findById(1L)).thenReturn(Optional.of(event));
+        when(eventMapper.toFullDto(event)).thenAnswer(invocation -> {
+            EventFullDto dto = new EventFullDto();
+            dto.setId(1L);
+            return dto;
+        });
+        when(statsClient.getLifetimeStats(List.of("/events/1"), true)).thenAnswer(invocation ->
+                List.of(new ViewStats("ewm-main-service", "/events/1", statsViews.get())));
+    }
+
+    private EventServiceImpl serviceWithViewsTtl(long viewsTtlSeconds) {
+        return new EventServiceImpl(eventRepository, userRepository, categoryRepository, eventMapper,
+                statsClient, eventSearchIndex, new EventSearchCache(false, 1, 1),
+                new EventDetailCache(true, 100, 300, viewsTtlSeconds));
+    }
+
+    private static MockHttpServletRequest eventRequest(String ip) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/events/1");
+        request.addHeader("X-Forwarded-For", ip);
+        return request;
+    }
+
+    private static void await(LocalDateTime moment) {
+        while (!LocalDateTime.now().isAfter(moment)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private static MockHttpServletRequest searchRequest(String query) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/events");
+        request.setQueryString(query);
+        request.addHeader("X-Forwarded-For", "10.0.0.1");
+        return request;
+    }
+
+    private static EventShortView view(Long id) {
+        return new EventShortView(id, "Событие " + id, "Аннотация", 1L, "Концерты", 1L, "Организатор",
+                LocalDateTime.now().plusDays(id), false, 0, 0);
+    }
+}
@@ -0,0 +1,299 @@
+package ru.practicum.explorewithme.client;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+import ru.practicum.explorewithme.dto.EndpointHit;
+import ru.practicum.explorewithme.dto.HitBatchResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Доставка хитов в сервис статистики.
+ * В асинхронном режиме хиты складываются в ограниченную неблокирующую очередь,
+ * фоновый поток отправляет их пачками в POST /hit/batch — по набору batch-size
+ * или раз в flush-interval-ms.
+ * При переполнении очереди хит отбрасывается и учитывается в счётчике dropped;
+ * при остановке приложения очередь дочищается не дольше shutdown-timeout-ms.
+ * Ответ 429 (сервис перегружен) не считается ошибкой: хиты возвращаются в очередь,
+ * отправка приостанавливается на Retry-After секунд.
+ */
+@Component
+@Slf4j
+public class HitSender implements MeterBinder {
+
+    private final RestTemplate restTemplate;
+    private final String serverUrl;
+    private final boolean async;
+    private final int capacity;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long shutdownTimeoutMillis;
+
+    private final ConcurrentLinkedQueue<EndpointHit> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger backlog = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+
+    private volatile long pausedUntilNanos;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public HitSender(RestTemplate restTemplate,
+                     @Value("${stats-server.url:http://localhost:9090}") String serverUrl,
+                     @Value("${stats-client.hit.async:true}") boolean async,
+                     @Value("${stats-client.hit.queue-capacity:10000}") int capacity,
+                     @Value("${stats-client.hit.batch-size:100}") int batchSize,
+                     @Value("${stats-client.hit.flush-interval-ms:200}") long flushIntervalMillis,
+                     @Value("${stats-client.hit.shutdown-timeout-ms:5000}") long shutdownTimeoutMillis) {
+        this.restTemplate = restTemplate;
+        this.serverUrl = serverUrl;
+        this.async = async;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!async) {
+            return;
+        }
+
+        running = true;
+        worker = new Thread(this::run, "stats-hit-sender");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (worker == null) {
+            return;
+        }
+
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(shutdownTimeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (backlog.get() > 0) {
+            log.warn("Сервис остановлен, не отправлено хитов: {}", backlog.get());
+        }
+        log.info("Отправка хитов остановлена: отправлено {}, ошибок {}, отброшено {}",
+                sent.get(), failed.get(), dropped.get());
+    }
+
+    /**
+     * Ставит хит в очередь на отправку, а в синхронном режиме отправляет сразу.
+     * Поток запроса не ждёт сервис статистики.
+     */
+    public void submit(EndpointHit endpointHit) {
+        if (!running) {
+            send(endpointHit);
+            return;
+        }
+
+        int size;
+        do {
+            size = backlog.get();
+            if (size >= capacity) {
+                long total = dropped.incrementAndGet();
+                if (total == 1 || total % 1000 == 0) {
+                    log.warn("Очередь хитов переполнена ({}), отброшено хитов: {}", capacity, total);
+                }
+                return;
+            }
+        } while (!backlog.compareAndSet(size, size + 1));
+
+        queue.offer(endpointHit);
+        if (size + 1 >= batchSize) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    public int getBacklog() {
+        return backlog.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getSent() {
+        return sent.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getThrottled() {
+        return throttled.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("stats.client.hits.backlog", backlog, AtomicInteger::get)
+                .description("Хиты в очереди на отправку")
+                .register(registry);
+        FunctionCounter.builder("stats.client.hits.dropped", dropped, AtomicLong::get)
+                .description("Хиты, отброшенные из-за переполнения очереди")
+                .register(registry);
+        FunctionCounter.builder("stats.client.hits.sent", sent, AtomicLong::get)
+                .register(registry);
+        FunctionCounter.builder("stats.client.hits.failed", failed, AtomicLong::get)
+                .register(registry);
+        FunctionCounter.builder("stats.client.hits.throttled", throttled, AtomicLong::get)
+                .description("Ответы 429 от сервиса статистики")
+                .register(registry);
+    }
+
+    private void run() {
+        long lastFlush = System.nanoTime();
+        while (running || backlog.get() > 0) {
+            long pause = pausedUntilNanos - System.nanoTime();
+            if (pause > 0) {
+                LockSupport.parkNanos(this, pause);
+                continue;
+            }
+
+            long sinceFlush = System.nanoTime() - lastFlush;
+            if (running && backlog.get() < batchSize && sinceFlush < flushIntervalNanos) {
+                LockSupport.parkNanos(this, flushIntervalNanos - sinceFlush);
+                continue;
+            }
+
+            List<EndpointHit> batch = new ArrayList<>(batchSize);
+            EndpointHit hit;
+            while (batch.size() < batchSize && (hit = queue.poll()) != null) {
+                batch.add(hit);
+            }
+            backlog.addAndGet(-batch.size());
+            lastFlush = System.nanoTime();
+
+            if (!batch.isEmpty()) {
+                sendBatch(batch);
+            }
+        }
+    }
+
+    private void sendBatch(List<EndpointHit> batch) {
+        if (batch.size() == 1) {
+            send(batch.getFirst());
+            return;
+        }
+
+        try {
+            ResponseEntity<HitBatchResult> response = restTemplate.postForEntity(
+                    serverUrl + "/hit/batch",
+                    batch,
+                    HitBatchResult.class
+            );
+
+            HitBatchResult result = response.getBody();
+            int rejected = (result != null && result.getRejected() != null) ? result.getRejected().size() : 0;
+            sent.addAndGet(batch.size() - rejected);
+            failed.addAndGet(rejected);
+            if (rejected > 0) {
+                log.warn("Сервис статистики отклонил {} из {} хитов: {}",
+                        rejected, batch.size(), result.getRejected());
+            } else {
+                log.debug("Пакет из {} хитов сохранён", batch.size());
+            }
+        } catch (HttpClientErrorException.TooManyRequests e) {
+            throttle(batch, e);
+        } catch (Exception e) {
+            failed.addAndGet(batch.size());
+            log.error("Ошибка при сохранении пакета из {} хитов: {}", batch.size(), e.getMessage(), e);
+        }
+    }
+
+    private void send(EndpointHit endpointHit) {
+        try {
+            ResponseEntity<Void> response = restTemplate.postForEntity(
+                    serverUrl + "/hit",
+                    endpointHit,
+                    Void.class
+            );
+
+            if (response.getStatusCode().is2xxSuccessful()) {
+                sent.incrementAndGet();
+                log.debug("Запрос сохранён: {} {}, статус: {}",
+                        endpointHit.getApp(), endpointHit.getUri(), response.getStatusCode());
+            } else {
+                failed.incrementAndGet();
+                log.warn("Неудачное сохранение запроса: статус {}", response.getStatusCode());
+            }
+        } catch (HttpClientErrorException.TooManyRequests e) {
+            throttle(List.of(endpointHit), e);
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            log.error("Ошибка при сохранении запроса: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Ответ 429: в асинхронном режиме хиты возвращаются в очередь, не вытесняя новые,
+     * и отправка приостанавливается; в синхронном — хит считается неотправленным
+     */
+    private void throttle(List<EndpointHit> hits, HttpClientErrorException e) {
+        throttled.incrementAndGet();
+        if (Thread.currentThread() != worker) {
+            failed.addAndGet(hits.size());
+            log.warn("Сервис статистики перегружен, хит не сохранён");
+            return;
+        }
+
+        long retryAfter = retryAfterSeconds(e);
+        pausedUntilNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(retryAfter);
+
+        int requeued = 0;
+        for (EndpointHit hit : hits) {
+            if (backlog.incrementAndGet() > capacity) {
+                backlog.decrementAndGet();
+                dropped.addAndGet(hits.size() - requeued);
+                break;
+            }
+            queue.offer(hit);
+            requeued++;
+        }
+        log.warn("Сервис статистики перегружен, повтор {} хитов через {} с", requeued, retryAfter);
+    }
+
+    private static long retryAfterSeconds(HttpClientErrorException e) {
+        HttpHeaders headers = e.getResponseHeaders();
+        String value = headers != null ? headers.getFirst(HttpHeaders.RETRY_AFTER) : null;
+        if (value != null) {
+            try {
+                return Math.max(1, Long.parseLong(value.trim()));
+            } catch (NumberFormatException ignored) {
+                // дата вместо числа секунд — ждём по умолчанию
+            }
+        }
+        return 1;
+    }
+}
@@ -2,12 +2,17 @@ package ru.practicum.explorewithme.client;
 
 import ru.practicum.explorewithme.dto.EndpointHit;
 import ru.practicum.explorewithme.dto.ViewStats;
+import ru.practicum.explorewithme.dto.ViewStatsSeries;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 public interface StatsClient {
 
+    /**
+     * Сохранение хита; в асинхронном режиме хит только ставится в очередь на отправку
+     * @param endpointHit информация о запросе
+     */
     void hit(EndpointHit endpointHit);
 
     /**
@@ -23,4 +28,24 @@ public interface StatsClient {
 
     List<ViewStats> getStats(LocalDateTime start, LocalDateTime end,
                              List<String> uris, Boolean unique);
+
+    /**
+     * Статистика за всё время по счётчикам сервиса статистики, без диапазона дат
+     * @param uris список URI для фильтрации
+     * @param unique учитывать только уникальные посещения
+     * @return список статистики
+     */
+    List<ViewStats> getLifetimeStats(List<String> uris, Boolean unique);
+
+    /**
+     * Хиты по интервалам для графиков просмотров
+     * @param start дата и время начала диапазона
+     * @param end дата и время конца диапазона
+     * @param uris список URI для фильтрации
+     * @param step размер интервала: minute, hour или day
+     * @param unique учитывать только уникальные посещения
+     * @return ряды по каждому URI
+     */
+    List<ViewStatsSeries> getTimeseries(LocalDateTime start, LocalDateTime end,
+                                        List<String> uris, String step, Boolean unique);
 }
@@ -9,9 +9,9 @@ import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 import ru.practicum.explorewithme.dto.EndpointHit;
 import ru.practicum.explorewithme.dto.ViewStats;
+import ru.practicum.explorewithme.dto.ViewStatsSeries;
 
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
+import java.net.URI;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
@@ -25,32 +25,17 @@ public class StatsClientImpl implements StatsClient {
             DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     private final RestTemplate restTemplate;
+    private final HitSender hitSender;
 
     @Value("${stats-server.url:http://localhost:9090}")
     private String serverUrl;
 
     @Override
     public void hit(EndpointHit endpointHit) {
-        try {
-            if (endpointHit.getTimestamp() == null) {
-                endpointHit.setTimestamp(LocalDateTime.now().format(FORMATTER));
-            }
-
-            ResponseEntity<Void> response = restTemplate.postForEntity(
-                    serverUrl + "/hit",
-                    endpointHit,
-                    Void.class
-            );
-
-            if (response.getStatusCode().is2xxSuccessful()) {
-                log.debug("Запрос сохранён: {} {}, статус: {}",
-                        endpointHit.getApp(), endpointHit.getUri(), response.getStatusCode());
-            } else {
-                log.warn("Неудачное сохранение запроса: статус {}", response.getStatusCode());
-            }
-        } catch (Exception e) {
-            log.error("Ошибка при сохранении запроса: {}", e.getMessage(), e);
+        if (endpointHit.getTimestamp() == null) {
+            endpointHit.setTimestamp(LocalDateTime.now().format(FORMATTER));
         }
+        hitSender.submit(endpointHit);
     }
 
     @Override
@@ -58,33 +43,10 @@ public class StatsClientImpl implements StatsClient {
         try {
             UriComponentsBuilder builder = UriComponentsBuilder
                     .fromHttpUrl(serverUrl + "/stats")
-                    .queryParam("start", encodeDateTime(start))
-                    .queryParam("end", encodeDateTime(end));
-
-            if (uris != null && !uris.isEmpty()) {
-                for (String uri : uris) {
-                    builder.queryParam("uris", uri);
-                }
-            }
-
-            if (unique != null) {
-                builder.queryParam("unique", unique);
-            }
-
-            String url = builder.encode().toUriString();
-            log.debug("Запрос статистики по url: {}", url);
-
-            ResponseEntity<ViewStats[]> response = restTemplate.getForEntity(
-                    url,
-                    ViewStats[].class
-            );
-
-            if (response.getBody() != null) {
-                log.debug("Получено {} записей статистики", response.getBody().length);
-                return Arrays.asList(response.getBody());
-            }
-            return Collections.emptyList();
+                    .queryParam("start", start)
+                    .queryParam("end", end);
 
+            return fetch(builder, uris, unique);
         } catch (Exception e) {
             log.error("Ошибка при получении статистики: {}", e.getMessage(), e);
             return Collections.emptyList();
@@ -99,13 +61,66 @@ public class StatsClientImpl implements StatsClient {
         return getStats(startStr, endStr, uris, unique);
     }
 
-    private String encodeDateTime(String dateTime) {
+    @Override
+    public List<ViewStats> getLifetimeStats(List<String> uris, Boolean unique) {
+        try {
+            return fetch(UriComponentsBuilder.fromHttpUrl(serverUrl + "/stats/lifetime"), uris, unique);
+        } catch (Exception e) {
+            log.error("Ошибка при получении статистики за всё время: {}", e.getMessage(), e);
+            return Collections.emptyList();
+        }
+    }
+
+    @Override
+    public List<ViewStatsSeries> getTimeseries(LocalDateTime start, LocalDateTime end,
+                                               List<String> uris, String step, Boolean unique) {
         try {
-            return URLEncoder.encode(dateTime, StandardCharsets.UTF_8)
-                    .replace("+", "%20");
+            UriComponentsBuilder builder = UriComponentsBuilder
+                    .fromHttpUrl(serverUrl + "/stats/timeseries")
+                    .queryParam("start", start.format(FORMATTER))
+                    .queryParam("end", end.format(FORMATTER))
+                    .queryParam("step", step);
+            addFilters(builder, uris, unique);
+
+            ResponseEntity<ViewStatsSeries[]> response = restTemplate.getForEntity(
+                    builder.encode().build().toUri(),
+                    ViewStatsSeries[].class
+            );
+            return response.getBody() != null ? Arrays.asList(response.getBody()) : Collections.emptyList();
         } catch (Exception e) {
-            log.error("Ошибка при кодировании даты: {}", dateTime, e);
-            return dateTime;
+            log.error("Ошибка при получении рядов статистики: {}", e.getMessage(), e);
+            return Collections.emptyList();
+        }
+    }
+
+    private List<ViewStats> fetch(UriComponentsBuilder builder, List<String> uris, Boolean unique) {
+        addFilters(builder, uris, unique);
+
+        // URI уже закодирован: строка ушла бы в RestTemplate как шаблон и закодировалась повторно
+        URI url = builder.encode().build().toUri();
+        log.debug("Запрос статистики по url: {}", url);
+
+        ResponseEntity<ViewStats[]> response = restTemplate.getForEntity(
+                url,
+                ViewStats[].class
+        );
+
+        if (response.getBody() != null) {
+            log.debug("Получено {} записей статистики", response.getBody().length);
+            return Arrays.asList(response.getBody());
+        }
+        return Collections.emptyList();
+    }
+
+    private void addFilters(UriComponentsBuilder builder, List<String> uris, Boolean unique) {
+        if (uris != null && !uris.isEmpty()) {
+            for (String uri : uris) {
+                builder.queryParam("uris", uri);
+            }
+        }
+
+        if (unique != null) {
+            builder.queryParam("unique", unique);
         }
     }
 }
\ No newline at end of file
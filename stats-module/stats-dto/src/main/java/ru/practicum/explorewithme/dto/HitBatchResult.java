@@ -0,0 +1,27 @@
+package ru.practicum.explorewithme.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Результат пакетного сохранения хитов: число сохранённых и отклонённые элементы
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class HitBatchResult {
+    private int accepted;
+    private List<RejectedHit> rejected;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class RejectedHit {
+        /** позиция хита во входном массиве */
+        private int index;
+        private String reason;
+    }
+}
@@ -1,5 +1,6 @@
 package ru.practicum.explorewithme.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -11,4 +12,14 @@ public class ViewStats {
     private String app;
     private String uri;
     private Long hits;
+
+    /** относительная стандартная ошибка hits для приближённого подсчёта, null для точного */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double relativeError;
+
+    public ViewStats(String app, String uri, Long hits) {
+        this.app = app;
+        this.uri = uri;
+        this.hits = hits;
+    }
 }
@@ -0,0 +1,23 @@
+package ru.practicum.explorewithme.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Хиты URI по интервалам step (minute, hour, day): buckets[i] — начало интервала
+ * в формате yyyy-MM-dd HH:mm:ss, hits[i] — число хитов за него.
+ * Интервалы без хитов пропускаются; крайние интервалы учитывают только хиты внутри диапазона запроса.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ViewStatsSeries {
+    private String app;
+    private String uri;
+    private String step;
+    private List<String> buckets;
+    private List<Long> hits;
+}
@@ -0,0 +1,165 @@
+package ru.practicum.explorewithme.server;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Допуск запросов к сервису статистики.
+ * Запись (/hit, /hit/batch) отклоняется с 429 и Retry-After, если занято write.max-concurrent
+ * запросов записи, буфер отложенной записи заполнен больше buffer-threshold или пул соединений
+ * занят больше pool-threshold — остаток пула и потоков остаётся чтению.
+ * Чтение ограничено отдельно read.max-concurrent запросами с ожиданием не дольше read.wait-ms,
+ * поэтому поток записи не вытесняет /stats, а тяжёлые выборки — запись.
+ */
+@Component
+@Slf4j
+public class AdmissionControl {
+
+    private final HitWriteBuffer hitWriteBuffer;
+    private final DataSource dataSource;
+    private final boolean enabled;
+    private final Semaphore writes;
+    private final Semaphore reads;
+    private final double bufferThreshold;
+    private final double poolThreshold;
+    private final long readWaitMillis;
+    private final long retryAfterSeconds;
+
+    private final Counter writesRejectedConcurrency;
+    private final Counter writesRejectedBuffer;
+    private final Counter writesRejectedPool;
+    private final Counter readsRejected;
+
+    public AdmissionControl(HitWriteBuffer hitWriteBuffer,
+                            DataSource dataSource,
+                            MeterRegistry meterRegistry,
+                            @Value("${stats.admission.enabled:true}") boolean enabled,
+                            @Value("${stats.admission.write.max-concurrent:64}") int maxWrites,
+                            @Value("${stats.admission.read.max-concurrent:32}") int maxReads,
+                            @Value("${stats.admission.read.wait-ms:100}") long readWaitMillis,
+                            @Value("${stats.admission.buffer-threshold:0.9}") double bufferThreshold,
+                            @Value("${stats.admission.pool-threshold:0.8}") double poolThreshold,
+                            @Value("${stats.admission.retry-after-seconds:1}") long retryAfterSeconds) {
+        this.hitWriteBuffer = hitWriteBuffer;
+        this.dataSource = dataSource;
+        this.enabled = enabled;
+        this.writes = new Semaphore(maxWrites);
+        this.reads = new Semaphore(maxReads);
+        this.readWaitMillis = readWaitMillis;
+        this.bufferThreshold = bufferThreshold;
+        this.poolThreshold = poolThreshold;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        Gauge.builder("stats.admission.in-flight", writes, semaphore -> maxWrites - semaphore.availablePermits())
+                .tag("type", "write")
+                .description("Запросы, выполняющиеся под контролем допуска")
+                .register(meterRegistry);
+        Gauge.builder("stats.admission.in-flight", reads, semaphore -> maxReads - semaphore.availablePermits())
+                .tag("type", "read")
+                .description("Запросы, выполняющиеся под контролем допуска")
+                .register(meterRegistry);
+        this.writesRejectedConcurrency = rejectedCounter(meterRegistry, "write", "concurrency");
+        this.writesRejectedBuffer = rejectedCounter(meterRegistry, "write", "buffer");
+        this.writesRejectedPool = rejectedCounter(meterRegistry, "write", "pool");
+        this.readsRejected = rejectedCounter(meterRegistry, "read", "concurrency");
+    }
+
+    /**
+     * Допуск запроса записи; разрешение нужно закрыть после обработки
+     */
+    public Permit admitWrite() {
+        if (!enabled) {
+            return Permit.NONE;
+        }
+        if (hitWriteBuffer.isEnabled() && hitWriteBuffer.fillRatio() >= bufferThreshold) {
+            writesRejectedBuffer.increment();
+            throw reject("Буфер записи хитов заполнен, повторите позже");
+        }
+        if (poolBusy()) {
+            writesRejectedPool.increment();
+            throw reject("Пул соединений с БД занят, повторите позже");
+        }
+        if (!writes.tryAcquire()) {
+            writesRejectedConcurrency.increment();
+            throw reject("Слишком много одновременных запросов записи, повторите позже");
+        }
+        return new Permit(writes);
+    }
+
+    /**
+     * Допуск запроса чтения; разрешение нужно закрыть после обработки, для потоковой выдачи — после записи ответа
+     */
+    public Permit admitRead() {
+        if (!enabled) {
+            return Permit.NONE;
+        }
+        try {
+            if (reads.tryAcquire(readWaitMillis, TimeUnit.MILLISECONDS)) {
+                return new Permit(reads);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        readsRejected.increment();
+        throw reject("Слишком много одновременных запросов статистики, повторите позже");
+    }
+
+    private boolean poolBusy() {
+        try {
+            if (!dataSource.isWrapperFor(HikariDataSource.class)) {
+                return false;
+            }
+            HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+            HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+            return pool != null && pool.getActiveConnections() >= hikari.getMaximumPoolSize() * poolThreshold;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private AdmissionRejectedException reject(String reason) {
+        log.debug("Запрос отклонён: {}", reason);
+        return new AdmissionRejectedException(reason, retryAfterSeconds);
+    }
+
+    private static Counter rejectedCounter(MeterRegistry meterRegistry, String type, String reason) {
+        return Counter.builder("stats.admission.rejected")
+                .tag("type", type)
+                .tag("reason", reason)
+                .description("Запросы, отклонённые с 429")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Разрешение на выполнение запроса; повторное закрытие ничего не делает
+     */
+    public static final class Permit implements AutoCloseable {
+        private static final Permit NONE = new Permit(null);
+
+        private final Semaphore semaphore;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(Semaphore semaphore) {
+            this.semaphore = semaphore;
+        }
+
+        @Override
+        public void close() {
+            if (semaphore != null && released.compareAndSet(false, true)) {
+                semaphore.release();
+            }
+        }
+    }
+}
@@ -19,15 +19,25 @@ public class EndpointHitEntity {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(nullable = false)
-    private String app;
+    @Column(name = "app_id", nullable = false)
+    private Integer appId;
 
-    @Column(nullable = false)
-    private String uri;
+    @Column(name = "uri_id", nullable = false)
+    private Integer uriId;
 
-    @Column(nullable = false)
+    /**
+     * Канонический вид IP, см. IpAddresses; в БД — inet
+     */
+    @Column(nullable = false, columnDefinition = "inet")
     private String ip;
 
     @Column(nullable = false)
     private LocalDateTime timestamp;
+
+    /**
+     * Исходный URI для hits_uri_raw, если приведение его изменило и приложение хранит исходные;
+     * пишется вместе с хитом, в том числе из буфера отложенной записи
+     */
+    @Transient
+    private String rawUri;
 }
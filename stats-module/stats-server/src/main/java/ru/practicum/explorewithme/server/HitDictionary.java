@@ -0,0 +1,210 @@
+package ru.practicum.explorewithme.server;
+
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Словари app и uri: строки хранятся один раз в hits_app и hits_uri,
+ * в хитах и счётчиках — целочисленные id. Соответствия кэшируются в памяти.
+ * Новые строки добавляются в отдельной транзакции: id остаётся в словаре,
+ * даже если транзакция хита откатится, и кэш не расходится с БД.
+ */
+@Component
+public class HitDictionary {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final Dictionary apps;
+    private final Dictionary uris;
+
+    // индекс строится при первом шаблоне; новые URI попадают в него и во время построения
+    private volatile UriIndex uriIndex;
+    private volatile boolean uriIndexReady;
+
+    public HitDictionary(NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+                         PlatformTransactionManager transactionManager) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.jdbcTemplate = namedParameterJdbcTemplate;
+        this.apps = new Dictionary(namedParameterJdbcTemplate, transactionTemplate, "hits_app", "name",
+                (value, id) -> {
+                });
+        this.uris = new Dictionary(namedParameterJdbcTemplate, transactionTemplate, "hits_uri", "uri",
+                (value, id) -> {
+                    UriIndex index = uriIndex;
+                    if (index != null) {
+                        index.add(value, id);
+                    }
+                });
+    }
+
+    /**
+     * Значение со звёздочкой — шаблон URI: * соответствует любой последовательности символов
+     */
+    public static boolean isPattern(String uri) {
+        return uri.indexOf('*') >= 0;
+    }
+
+    /**
+     * id приложений, новые названия добавляются в словарь
+     */
+    public Map<String, Integer> internApps(Collection<String> names) {
+        return apps.intern(names);
+    }
+
+    /**
+     * id URI, новые URI добавляются в словарь
+     */
+    public Map<String, Integer> internUris(Collection<String> values) {
+        return uris.intern(values);
+    }
+
+    /**
+     * id известных URI; URI, которых нет в словаре, пропускаются.
+     * Шаблоны разворачиваются по индексу всех URI словаря, без запроса к хитам.
+     */
+    public List<Integer> findUriIds(Collection<String> values) {
+        Set<Integer> result = new LinkedHashSet<>();
+        List<String> exact = new ArrayList<>();
+        for (String value : values) {
+            if (isPattern(value)) {
+                result.addAll(uriIndex().match(value));
+            } else {
+                exact.add(value);
+            }
+        }
+        if (!exact.isEmpty()) {
+            result.addAll(uris.find(exact).values());
+        }
+        return new ArrayList<>(result);
+    }
+
+    public Map<Integer, String> appNames(Collection<Integer> ids) {
+        return apps.names(ids);
+    }
+
+    public Map<Integer, String> uriNames(Collection<Integer> ids) {
+        return uris.names(ids);
+    }
+
+    private UriIndex uriIndex() {
+        if (uriIndexReady) {
+            return uriIndex;
+        }
+        synchronized (this) {
+            if (!uriIndexReady) {
+                UriIndex index = new UriIndex();
+                uriIndex = index;
+                jdbcTemplate.getJdbcTemplate().query("SELECT id, uri FROM hits_uri",
+                        (RowCallbackHandler) rs -> index.add(rs.getString("uri"), rs.getInt("id")));
+                uriIndexReady = true;
+            }
+            return uriIndex;
+        }
+    }
+
+    private static final class Dictionary {
+        private final NamedParameterJdbcTemplate jdbcTemplate;
+        private final TransactionTemplate transactionTemplate;
+        private final String table;
+        private final String column;
+        private final BiConsumer<String, Integer> onCached;
+        private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<Integer, String> values = new ConcurrentHashMap<>();
+
+        private Dictionary(NamedParameterJdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                           String table, String column, BiConsumer<String, Integer> onCached) {
+            this.jdbcTemplate = jdbcTemplate;
+            this.transactionTemplate = transactionTemplate;
+            this.table = table;
+            this.column = column;
+            this.onCached = onCached;
+        }
+
+        private Map<String, Integer> intern(Collection<String> keys) {
+            Map<String, Integer> result = find(keys);
+            if (result.size() == new HashSet<>(keys).size()) {
+                return result;
+            }
+
+            // одинаковый порядок вставки во всех транзакциях исключает взаимные блокировки
+            SortedSet<String> missing = new TreeSet<>(keys);
+            missing.removeAll(result.keySet());
+            transactionTemplate.executeWithoutResult(status -> {
+                MapSqlParameterSource params = new MapSqlParameterSource();
+                List<String> rows = new ArrayList<>(missing.size());
+                int i = 0;
+                for (String key : missing) {
+                    params.addValue("v" + i, key);
+                    rows.add("(:v" + i++ + ")");
+                }
+                jdbcTemplate.update("INSERT INTO " + table + " (" + column + ") VALUES " + String.join(", ", rows)
+                        + " ON CONFLICT (" + column + ") DO NOTHING", params);
+            });
+
+            result.putAll(load(missing));
+            return result;
+        }
+
+        private Map<String, Integer> find(Collection<String> keys) {
+            Map<String, Integer> result = new HashMap<>();
+            List<String> missing = new ArrayList<>();
+            for (String key : keys) {
+                Integer id = ids.get(key);
+                if (id != null) {
+                    result.put(key, id);
+                } else {
+                    missing.add(key);
+                }
+            }
+            if (!missing.isEmpty()) {
+                result.putAll(load(missing));
+            }
+            return result;
+        }
+
+        private Map<String, Integer> load(Collection<String> keys) {
+            Map<String, Integer> result = new HashMap<>();
+            jdbcTemplate.query("SELECT id, " + column + " FROM " + table + " WHERE " + column + " IN (:keys)",
+                    new MapSqlParameterSource("keys", keys),
+                    (RowCallbackHandler) rs -> result.put(cache(rs.getInt("id"), rs.getString(column)),
+                            rs.getInt("id")));
+            return result;
+        }
+
+        private Map<Integer, String> names(Collection<Integer> keys) {
+            Map<Integer, String> result = new HashMap<>();
+            Set<Integer> missing = new HashSet<>();
+            for (Integer id : keys) {
+                String value = values.get(id);
+                if (value != null) {
+                    result.put(id, value);
+                } else {
+                    missing.add(id);
+                }
+            }
+            if (!missing.isEmpty()) {
+                jdbcTemplate.query("SELECT id, " + column + " FROM " + table + " WHERE id IN (:ids)",
+                        new MapSqlParameterSource("ids", missing),
+                        (RowCallbackHandler) rs -> result.put(rs.getInt("id"),
+                                cache(rs.getInt("id"), rs.getString(column))));
+            }
+            return result;
+        }
+
+        private String cache(int id, String value) {
+            ids.putIfAbsent(value, id);
+            values.putIfAbsent(id, value);
+            onCached.accept(value, id);
+            return value;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package ru.practicum.explorewithme.server;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отсев повторов и потока хитов до записи и до пополнения словарей app и uri.
+ * Повтор (app, uri, ip) в том же интервале dedup.window-seconds по времени хита отбрасывается.
+ * Без dedup повтор отбрасывается, только если у IP кончились токены: rate-limit.per-ip-per-second
+ * в секунду с запасом burst по времени поступления. Первый хит тройки в интервале проходит всегда
+ * и только тратит токен, поэтому поток с одного IP не вытесняет его из уникальных просмотров.
+ * Интервалы выровнены по времени хита и вкладываются в часы, поэтому множества IP в часовых
+ * и дневных скетчах, счётчики уникальных IP за всё время и точные уникальные просмотры
+ * за диапазоны с границами по интервалам не меняются; уменьшается только число неуникальных хитов.
+ * Состояние хранится в памяти процесса.
+ */
+@Component
+public class HitFilter {
+
+    private final boolean dedupEnabled;
+    private final long windowSeconds;
+    private final Cache<Long, Boolean> seen;
+
+    private final boolean rateLimitEnabled;
+    private final double tokensPerNano;
+    private final double burst;
+    private final Cache<String, TokenBucket> buckets;
+
+    private final Counter duplicates;
+    private final Counter rateLimited;
+
+    public HitFilter(MeterRegistry meterRegistry,
+                     @Value("${stats.hit.dedup.enabled:false}") boolean dedupEnabled,
+                     @Value("${stats.hit.dedup.window-seconds:60}") long windowSeconds,
+                     @Value("${stats.hit.dedup.max-entries:1000000}") long maxEntries,
+                     @Value("${stats.hit.rate-limit.enabled:false}") boolean rateLimitEnabled,
+                     @Value("${stats.hit.rate-limit.per-ip-per-second:20}") double perIpPerSecond,
+                     @Value("${stats.hit.rate-limit.burst:40}") double burst) {
+        if (windowSeconds <= 0 || 3600 % windowSeconds != 0) {
+            throw new IllegalArgumentException(
+                    "stats.hit.dedup.window-seconds должен делить час без остатка: " + windowSeconds);
+        }
+        this.dedupEnabled = dedupEnabled;
+        this.windowSeconds = windowSeconds;
+        // запас на хиты, пришедшие позже своего интервала
+        this.seen = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofSeconds(windowSeconds * 2))
+                .build();
+
+        this.rateLimitEnabled = rateLimitEnabled;
+        this.tokensPerNano = perIpPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterAccess(Duration.ofMinutes(1))
+                .build();
+
+        this.duplicates = Counter.builder("stats.hit.dropped")
+                .tag("reason", "duplicate")
+                .description("Хиты, отброшенные до записи")
+                .register(meterRegistry);
+        this.rateLimited = Counter.builder("stats.hit.dropped")
+                .tag("reason", "rate-limit")
+                .description("Хиты, отброшенные до записи")
+                .register(meterRegistry);
+    }
+
+    /**
+     * true — хит нужно записать
+     * @param app название приложения без крайних пробелов
+     * @param uri канонический URI
+     * @param ip IP в каноническом виде
+     */
+    public boolean accept(String app, String uri, String ip, LocalDateTime timestamp) {
+        if (!dedupEnabled && !rateLimitEnabled) {
+            return true;
+        }
+
+        long window = timestamp.toEpochSecond(ZoneOffset.UTC) / windowSeconds;
+        long key = HyperLogLog.hash(app + '\n' + uri + '\n' + window + '\n' + ip);
+        boolean repeated = seen.asMap().putIfAbsent(key, Boolean.TRUE) != null;
+        TokenBucket bucket = rateLimitEnabled ? buckets.get(ip, address -> new TokenBucket(burst)) : null;
+        if (!repeated) {
+            if (bucket != null) {
+                bucket.take(tokensPerNano, burst);
+            }
+            return true;
+        }
+
+        if (dedupEnabled) {
+            duplicates.increment();
+            return false;
+        }
+        if (!bucket.tryAcquire(tokensPerNano, burst)) {
+            rateLimited.increment();
+            return false;
+        }
+        return true;
+    }
+
+    private static final class TokenBucket {
+        private double tokens;
+        private long refilledAt = System.nanoTime();
+
+        private TokenBucket(double tokens) {
+            this.tokens = tokens;
+        }
+
+        private synchronized boolean tryAcquire(double tokensPerNano, double capacity) {
+            refill(tokensPerNano, capacity);
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+
+        private synchronized void take(double tokensPerNano, double capacity) {
+            refill(tokensPerNano, capacity);
+            tokens = Math.max(0, tokens - 1);
+        }
+
+        private void refill(double tokensPerNano, double capacity) {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+        }
+    }
+}
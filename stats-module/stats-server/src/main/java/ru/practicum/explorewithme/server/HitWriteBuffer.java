@@ -0,0 +1,247 @@
+package ru.practicum.explorewithme.server;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Буфер отложенной записи хитов (write-behind).
+ * /hit подтверждается сразу после добавления в кольцевой буфер, писатели выгружают
+ * буфер в БД групповыми коммитами — по набору flush-size или через flush-interval-ms
+ * после первого хита пачки. Если буфер заполнен, хит пишется синхронно.
+ * Исходные URI хитов для hits_uri_raw пишутся той же транзакцией, что и хиты пачки.
+ * Неудавшийся групповой коммит повторяется до retries раз с удвоением паузы от retry-backoff-ms,
+ * затем пачка пишется по одному хиту, чтобы одна некорректная строка не отбросила остальные.
+ * Хиты, не записанные и так, уже подтверждены клиенту: они теряются и учитываются в stats.ingest.failed.
+ * При остановке сервиса буфер дописывается.
+ */
+@Component
+@Slf4j
+public class HitWriteBuffer {
+
+    private final StatsRepository statsRepository;
+    private final StatsQueryCache statsQueryCache;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int flushSize;
+    private final long flushIntervalNanos;
+    private final int writers;
+    private final long shutdownTimeoutMillis;
+    private final int retries;
+    private final long retryBackoffMillis;
+    private final ArrayBlockingQueue<EndpointHitEntity> buffer;
+
+    private final Timer flushTimer;
+    private final Counter flushedHits;
+    private final Counter failedHits;
+
+    private final List<Thread> writerThreads = new ArrayList<>();
+    private volatile boolean running;
+
+    public HitWriteBuffer(StatsRepository statsRepository,
+                          StatsQueryCache statsQueryCache,
+                          PlatformTransactionManager transactionManager,
+                          MeterRegistry meterRegistry,
+                          @Value("${stats.hit.write-behind.enabled:false}") boolean enabled,
+                          @Value("${stats.hit.write-behind.capacity:65536}") int capacity,
+                          @Value("${stats.hit.write-behind.flush-size:1000}") int flushSize,
+                          @Value("${stats.hit.write-behind.flush-interval-ms:100}") long flushIntervalMillis,
+                          @Value("${stats.hit.write-behind.writers:1}") int writers,
+                          @Value("${stats.hit.write-behind.shutdown-timeout-ms:10000}") long shutdownTimeoutMillis,
+                          @Value("${stats.hit.write-behind.retries:3}") int retries,
+                          @Value("${stats.hit.write-behind.retry-backoff-ms:200}") long retryBackoffMillis) {
+        this.statsRepository = statsRepository;
+        this.statsQueryCache = statsQueryCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.flushSize = flushSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.writers = writers;
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+        this.retries = retries;
+        this.retryBackoffMillis = retryBackoffMillis;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+
+        Gauge.builder("stats.ingest.buffer.depth", buffer, ArrayBlockingQueue::size)
+                .description("Хиты в буфере отложенной записи")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("stats.ingest.flush")
+                .description("Время группового коммита буфера хитов")
+                .register(meterRegistry);
+        this.flushedHits = Counter.builder("stats.ingest.flushed")
+                .register(meterRegistry);
+        this.failedHits = Counter.builder("stats.ingest.failed")
+                .description("Хиты, которые не удалось записать из буфера")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+
+        running = true;
+        for (int i = 0; i < writers; i++) {
+            Thread writer = new Thread(this::run, "stats-hit-writer-" + i);
+            writer.setDaemon(true);
+            writer.start();
+            writerThreads.add(writer);
+        }
+        log.info("Отложенная запись хитов включена: писателей {}, flush-size {}", writers, flushSize);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (!running) {
+            return;
+        }
+
+        running = false;
+        long deadline = System.currentTimeMillis() + shutdownTimeoutMillis;
+        for (Thread writer : writerThreads) {
+            try {
+                writer.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        if (!buffer.isEmpty()) {
+            log.warn("Сервис остановлен, в буфере осталось хитов: {}", buffer.size());
+        }
+    }
+
+    public boolean isEnabled() {
+        return running;
+    }
+
+    /**
+     * Доля заполнения буфера от 0 до 1
+     */
+    public double fillRatio() {
+        int size = buffer.size();
+        return (double) size / (size + buffer.remainingCapacity());
+    }
+
+    /**
+     * Добавляет хит в буфер. false — буфер выключен или заполнен,
+     * хит нужно записать синхронно.
+     */
+    public boolean append(EndpointHitEntity hit) {
+        return running && buffer.offer(hit);
+    }
+
+    private void run() {
+        List<EndpointHitEntity> batch = new ArrayList<>(flushSize);
+        while (running || !buffer.isEmpty()) {
+            try {
+                EndpointHitEntity first = buffer.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < flushSize) {
+                    buffer.drainTo(batch, flushSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= flushSize || !running || remaining <= 0) {
+                        break;
+                    }
+                    EndpointHitEntity next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                buffer.drainTo(batch, flushSize - batch.size());
+                running = false;
+            }
+
+            flush(batch);
+            batch.clear();
+        }
+    }
+
+    private void flush(List<EndpointHitEntity> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        long startedAt = System.nanoTime();
+        try {
+            for (int attempt = 0; ; attempt++) {
+                try {
+                    write(batch);
+                    flushedHits.increment(batch.size());
+                    log.debug("Из буфера записано хитов: {}", batch.size());
+                    return;
+                } catch (Exception e) {
+                    if (attempt >= retries) {
+                        log.warn("Групповая запись {} хитов не удалась после {} попыток, запись по одному: {}",
+                                batch.size(), attempt + 1, e.getMessage());
+                        break;
+                    }
+                    long backoff = retryBackoffMillis << attempt;
+                    log.warn("Ошибка групповой записи {} хитов, повтор через {} мс: {}",
+                            batch.size(), backoff, e.getMessage());
+                    if (!pause(backoff)) {
+                        break;
+                    }
+                }
+            }
+
+            for (EndpointHitEntity hit : batch) {
+                try {
+                    write(List.of(hit));
+                    flushedHits.increment();
+                } catch (Exception e) {
+                    failedHits.increment();
+                    log.error("Хит из буфера не записан и потерян: app_id={}, uri_id={}, timestamp={}: {}",
+                            hit.getAppId(), hit.getUriId(), hit.getTimestamp(), e.getMessage(), e);
+                }
+            }
+        } finally {
+            flushTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void write(List<EndpointHitEntity> hits) {
+        transactionTemplate.executeWithoutResult(status -> {
+            statsRepository.recordRawUris(hits);
+            statsRepository.insertAll(hits);
+            statsQueryCache.onIngested(hits);
+        });
+    }
+
+    /**
+     * false — поток прерван; буфер дописывается без пауз
+     */
+    private boolean pause(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+            return false;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package ru.practicum.explorewithme.server;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Обслуживание секций таблицы hits.
+ * Секции по дню или месяцу создаются заранее на partition.ahead интервалов вперёд;
+ * хиты вне созданных секций попадают в hits_default. Секции, целиком старше
+ * retention-days, удаляются — счётчики и скетчи за эти интервалы остаются,
+ * поэтому неуникальные и приближённые уникальные просмотры по ним продолжают считаться.
+ * Счётчики за всё время (hits_lifetime, hits_lifetime_ip) при удалении секций не уменьшаются:
+ * /stats/lifetime считает уникальные IP по всей истории, а hits_lifetime_ip хранит каждую
+ * тройку (app, uri, ip) бессрочно. Точные уникальные в /stats при retention-days > 0
+ * поэтому всегда считаются по оставшимся хитам, без счётчиков за всё время.
+ * Несекционированная таблица hits прошлых версий при старте подключается
+ * секцией hits_legacy.
+ */
+@Component
+@Slf4j
+public class HitsPartitionManager {
+
+    private static final Pattern BOUNDS = Pattern.compile("FROM \\((.+)\\) TO \\((.+)\\)");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StatsQueryCache statsQueryCache;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean monthly;
+    private final int ahead;
+    private final int retentionDays;
+
+    public HitsPartitionManager(JdbcTemplate jdbcTemplate,
+                                StatsQueryCache statsQueryCache,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${stats.hits.partition.interval:month}") String interval,
+                                @Value("${stats.hits.partition.ahead:2}") int ahead,
+                                @Value("${stats.hits.retention-days:0}") int retentionDays) {
+        if (!interval.equals("month") && !interval.equals("day")) {
+            throw new IllegalArgumentException("stats.hits.partition.interval должен быть month или day: " + interval);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.statsQueryCache = statsQueryCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.monthly = interval.equals("month");
+        this.ahead = ahead;
+        this.retentionDays = retentionDays;
+    }
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate.executeWithoutResult(status -> migrateLegacyTable());
+        maintain();
+    }
+
+    @Scheduled(cron = "${stats.hits.partition.cron:0 0 3 * * *}")
+    public void maintain() {
+        LocalDate start = periodStart(LocalDate.now());
+        for (int i = 0; i <= ahead; i++) {
+            LocalDate from = monthly ? start.plusMonths(i) : start.plusDays(i);
+            LocalDate to = monthly ? from.plusMonths(1) : from.plusDays(1);
+            try {
+                transactionTemplate.executeWithoutResult(status -> createPartition(from, to));
+            } catch (Exception e) {
+                log.error("Ошибка создания секции hits с {}: {}", from, e.getMessage(), e);
+            }
+        }
+
+        if (retentionDays > 0) {
+            dropExpiredPartitions(LocalDate.now().minusDays(retentionDays).atStartOfDay());
+        }
+    }
+
+    private void migrateLegacyTable() {
+        String kind = jdbcTemplate.queryForObject(
+                "SELECT relkind::text FROM pg_class WHERE oid = 'hits'::regclass", String.class);
+        if (!"r".equals(kind)) {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS hits_default PARTITION OF hits DEFAULT");
+            return;
+        }
+
+        log.info("Перевод таблицы hits на секции");
+        jdbcTemplate.execute("ALTER TABLE hits RENAME TO hits_legacy");
+        jdbcTemplate.execute("ALTER INDEX IF EXISTS idx_hits_uri_timestamp RENAME TO hits_legacy_uri_timestamp_idx");
+        List<String> primaryKeys = jdbcTemplate.queryForList(
+                "SELECT conname FROM pg_constraint WHERE conrelid = 'hits_legacy'::regclass AND contype = 'p'",
+                String.class);
+        for (String primaryKey : primaryKeys) {
+            jdbcTemplate.execute("ALTER TABLE hits_legacy DROP CONSTRAINT \"" + primaryKey + "\"");
+        }
+        jdbcTemplate.execute("ALTER TABLE hits_legacy ALTER COLUMN id DROP IDENTITY IF EXISTS");
+
+        // типы колонок берутся из прежней таблицы, иначе её не подключить секцией
+        jdbcTemplate.execute("CREATE TABLE hits (LIKE hits_legacy) PARTITION BY RANGE (timestamp)");
+        jdbcTemplate.execute("ALTER TABLE hits ALTER COLUMN id ADD GENERATED BY DEFAULT AS IDENTITY");
+        jdbcTemplate.execute("ALTER TABLE hits ADD PRIMARY KEY (id, timestamp)");
+        jdbcTemplate.execute("SELECT setval(pg_get_serial_sequence('hits', 'id'), "
+                + "COALESCE((SELECT MAX(id) FROM hits_legacy), 0) + 1, false)");
+
+        Timestamp upper = jdbcTemplate.queryForObject(
+                "SELECT date_trunc('day', MAX(timestamp)) + INTERVAL '1 day' FROM hits_legacy", Timestamp.class);
+        if (upper == null) {
+            jdbcTemplate.execute("DROP TABLE hits_legacy");
+        } else {
+            jdbcTemplate.execute("ALTER TABLE hits ATTACH PARTITION hits_legacy "
+                    + "FOR VALUES FROM (MINVALUE) TO ('" + upper + "')");
+            log.info("Прежние хиты до {} подключены секцией hits_legacy", upper);
+        }
+        jdbcTemplate.execute("CREATE TABLE hits_default PARTITION OF hits DEFAULT");
+    }
+
+    /**
+     * Создаёт секцию на [from, to), обрезая диапазон по уже существующим секциям.
+     * Попавшие в диапазон хиты переносятся из hits_default, иначе подключение секции не пройдёт.
+     */
+    private void createPartition(LocalDate fromDate, LocalDate toDate) {
+        LocalDateTime from = fromDate.atStartOfDay();
+        LocalDateTime to = toDate.atStartOfDay();
+        List<Partition> partitions = partitions();
+        for (Partition partition : partitions) {
+            if (partition.covers(from)) {
+                from = partition.upper();
+            }
+            if (from == null) {
+                return;
+            }
+        }
+        for (Partition partition : partitions) {
+            LocalDateTime lower = partition.lower();
+            if (lower != null && lower.isAfter(from) && lower.isBefore(to)) {
+                to = lower;
+            }
+        }
+        if (!from.isBefore(to)) {
+            return;
+        }
+
+        String name = "hits_p" + fromDate.format(DateTimeFormatter.ofPattern(monthly ? "yyyyMM" : "yyyyMMdd"));
+        jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE hits INCLUDING DEFAULTS)");
+        int moved = jdbcTemplate.update("WITH moved AS (DELETE FROM hits_default "
+                        + "WHERE timestamp >= ? AND timestamp < ? RETURNING *) "
+                        + "INSERT INTO " + name + " SELECT * FROM moved",
+                Timestamp.valueOf(from), Timestamp.valueOf(to));
+        jdbcTemplate.execute("ALTER TABLE hits ATTACH PARTITION " + name
+                + " FOR VALUES FROM ('" + Timestamp.valueOf(from) + "') TO ('" + Timestamp.valueOf(to) + "')");
+        log.info("Создана секция {} с {} по {}, перенесено хитов: {}", name, from, to, moved);
+    }
+
+    private void dropExpiredPartitions(LocalDateTime cutoff) {
+        for (Partition partition : partitions()) {
+            if (partition.upper() == null || partition.upper().isAfter(cutoff)) {
+                continue;
+            }
+            try {
+                jdbcTemplate.execute("DROP TABLE " + partition.name());
+                statsQueryCache.invalidateAll();
+                log.info("Удалена секция {} с хитами до {}", partition.name(), partition.upper());
+            } catch (Exception e) {
+                log.error("Ошибка удаления секции {}: {}", partition.name(), e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Секции hits с границами, кроме hits_default, по возрастанию нижней границы
+     */
+    private List<Partition> partitions() {
+        return jdbcTemplate.query(
+                "SELECT c.relname, pg_get_expr(c.relpartbound, c.oid) AS bound FROM pg_inherits i "
+                        + "JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = 'hits'::regclass",
+                (rs, rowNum) -> {
+                    Matcher matcher = BOUNDS.matcher(rs.getString("bound"));
+                    if (!matcher.find()) {
+                        return null;
+                    }
+                    return new Partition(rs.getString("relname"),
+                            parseBound(matcher.group(1)), parseBound(matcher.group(2)));
+                }).stream()
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparing(Partition::lower, Comparator.nullsFirst(Comparator.naturalOrder())))
+                .toList();
+    }
+
+    private LocalDate periodStart(LocalDate date) {
+        return monthly ? date.withDayOfMonth(1) : date;
+    }
+
+    private static LocalDateTime parseBound(String value) {
+        if (value.equals("MINVALUE") || value.equals("MAXVALUE")) {
+            return null;
+        }
+        return Timestamp.valueOf(value.replace("'", "")).toLocalDateTime();
+    }
+
+    /**
+     * Секция [lower, upper); null — MINVALUE/MAXVALUE
+     */
+    private record Partition(String name, LocalDateTime lower, LocalDateTime upper) {
+        boolean covers(LocalDateTime moment) {
+            return (lower == null || !lower.isAfter(moment)) && (upper == null || upper.isAfter(moment));
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package ru.practicum.explorewithme.server;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Приведение хранилища хитов к текущему формату при старте.
+ * Таблицы со строковыми app и uri переводятся на id словарей hits_app/hits_uri,
+ * строковый ip в hits — на inet. Перевод выполняется на месте, в одной транзакции;
+ * место, занятое прежними строками, освобождает VACUUM FULL.
+ * Здесь же однократно заполняются счётчики, появившиеся позже самих хитов.
+ * Выполняется после перевода hits на секции, поэтому зависит от HitsPartitionManager.
+ */
+@Component
+@DependsOn("hitsPartitionManager")
+@Slf4j
+public class HitsStorageMigration {
+
+    private static final List<String> KEYED_TABLES =
+            List.of("hits", "hits_minute", "hits_hour", "hits_hour_hll", "hits_day_hll");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public HitsStorageMigration(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void migrate() {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (String table : KEYED_TABLES) {
+                encodeKeys(table);
+            }
+            encodeIp();
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_hits_uri_timestamp ON hits (uri_id, timestamp)");
+            backfillRollups();
+            backfillLifetime();
+        });
+    }
+
+    private void encodeKeys(String table) {
+        if (!hasColumn(table, "app")) {
+            return;
+        }
+
+        log.info("Перевод {} на словари app и uri", table);
+        jdbcTemplate.execute("INSERT INTO hits_app (name) SELECT DISTINCT app FROM " + table
+                + " ON CONFLICT (name) DO NOTHING");
+        jdbcTemplate.execute("INSERT INTO hits_uri (uri) SELECT DISTINCT uri FROM " + table
+                + " ON CONFLICT (uri) DO NOTHING");
+        jdbcTemplate.execute("ALTER TABLE " + table + " ADD COLUMN app_id INT, ADD COLUMN uri_id INT");
+        int rows = jdbcTemplate.update("UPDATE " + table + " t SET app_id = a.id, uri_id = u.id "
+                + "FROM hits_app a, hits_uri u WHERE a.name = t.app AND u.uri = t.uri");
+        // вместе с колонками удаляются построенные на них ключи и индексы
+        jdbcTemplate.execute("ALTER TABLE " + table + " DROP COLUMN app, DROP COLUMN uri, "
+                + "ALTER COLUMN app_id SET NOT NULL, ALTER COLUMN uri_id SET NOT NULL");
+        if (!table.equals("hits")) {
+            jdbcTemplate.execute("ALTER TABLE " + table + " ADD PRIMARY KEY (app_id, uri_id, bucket)");
+        }
+        log.info("Таблица {} переведена на словари, строк: {}", table, rows);
+    }
+
+    private void encodeIp() {
+        String type = jdbcTemplate.queryForObject("SELECT data_type FROM information_schema.columns "
+                + "WHERE table_schema = current_schema() AND table_name = 'hits' AND column_name = 'ip'", String.class);
+        if ("inet".equals(type)) {
+            return;
+        }
+
+        // то же кодирование, что в IpAddresses: не-адреса — в fd00::/8 по MD5 строки
+        jdbcTemplate.execute("CREATE FUNCTION pg_temp.hit_ip(value TEXT) RETURNS INET AS $$ "
+                + "BEGIN "
+                + "IF value LIKE '%/%' THEN RAISE EXCEPTION 'network'; END IF; "
+                + "RETURN trim(value)::inet; "
+                + "EXCEPTION WHEN others THEN "
+                + "RETURN regexp_replace('fd' || substr(md5(value), 1, 30), '(.{4})(?=.)', '\\1:', 'g')::inet; "
+                + "END $$ LANGUAGE plpgsql IMMUTABLE");
+        jdbcTemplate.execute("ALTER TABLE hits ALTER COLUMN ip TYPE INET USING pg_temp.hit_ip(ip)");
+        log.info("IP в hits переведены на inet");
+    }
+
+    /**
+     * Однократное заполнение счётчиков по хитам, записанным до их появления
+     */
+    private void backfillRollups() {
+        Integer done = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM hits_rollup_state", Integer.class);
+        if (done != null && done > 0) {
+            return;
+        }
+
+        for (String unit : List.of("minute", "hour")) {
+            jdbcTemplate.execute("INSERT INTO hits_" + unit + " (app_id, uri_id, bucket, hits) "
+                    + "SELECT app_id, uri_id, date_trunc('" + unit + "', timestamp), COUNT(*) FROM hits "
+                    + "GROUP BY app_id, uri_id, date_trunc('" + unit + "', timestamp) "
+                    + "ON CONFLICT (app_id, uri_id, bucket) DO NOTHING");
+        }
+        jdbcTemplate.execute("INSERT INTO hits_rollup_state (id, backfilled_at) VALUES (1, now())");
+    }
+
+    /**
+     * Однократное заполнение счётчиков за всё время по хитам, записанным до их появления.
+     * Хиты из уже удалённых по retention-days секций в них не попадают.
+     */
+    private void backfillLifetime() {
+        Integer done = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM hits_lifetime_state", Integer.class);
+        if (done != null && done > 0) {
+            return;
+        }
+
+        jdbcTemplate.execute("INSERT INTO hits_lifetime_ip (app_id, uri_id, ip) "
+                + "SELECT DISTINCT app_id, uri_id, ip FROM hits ON CONFLICT DO NOTHING");
+        int rows = jdbcTemplate.update("INSERT INTO hits_lifetime "
+                + "(app_id, uri_id, hits, unique_ips, first_seen, last_seen) "
+                + "SELECT app_id, uri_id, COUNT(*), COUNT(DISTINCT ip), MIN(timestamp), MAX(timestamp) FROM hits "
+                + "GROUP BY app_id, uri_id ON CONFLICT (app_id, uri_id) DO NOTHING");
+        jdbcTemplate.execute("INSERT INTO hits_lifetime_state (id, backfilled_at) VALUES (1, now())");
+        log.info("Счётчики за всё время заполнены по хитам, URI: {}", rows);
+    }
+
+    private boolean hasColumn(String table, String column) {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.columns "
+                        + "WHERE table_schema = current_schema() AND table_name = ? AND column_name = ?",
+                Integer.class, table, column);
+        return count != null && count > 0;
+    }
+}
@@ -0,0 +1,67 @@
+package ru.practicum.explorewithme.server;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Приведение IP хита к значению колонки inet.
+ * Адреса IPv4 и IPv6 разбираются без обращения к DNS и записываются в каноническом виде.
+ * Значение, не являющееся адресом, /hit по-прежнему принимает: оно кодируется адресом
+ * из fd00::/8 по MD5 строки — так же, как при переводе прежних строковых IP в inet.
+ */
+public final class IpAddresses {
+
+    private IpAddresses() {
+    }
+
+    public static String canonical(String ip) {
+        String value = ip.trim();
+        try {
+            if (value.indexOf(':') >= 0) {
+                // в скобках строка разбирается только как литерал IPv6
+                return InetAddress.getByName("[" + value + "]").getHostAddress();
+            }
+            byte[] ipv4 = parseIpv4(value);
+            if (ipv4 != null) {
+                return InetAddress.getByAddress(ipv4).getHostAddress();
+            }
+        } catch (UnknownHostException e) {
+            // не адрес — кодируется ниже
+        }
+        return hashed(ip);
+    }
+
+    private static String hashed(String ip) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(ip.getBytes(StandardCharsets.UTF_8));
+            byte[] address = HexFormat.of().parseHex("fd" + HexFormat.of().formatHex(digest).substring(0, 30));
+            return InetAddress.getByAddress(address).getHostAddress();
+        } catch (NoSuchAlgorithmException | UnknownHostException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] parseIpv4(String value) {
+        String[] parts = value.split("\\.", -1);
+        if (parts.length != 4) {
+            return null;
+        }
+        byte[] address = new byte[4];
+        for (int i = 0; i < 4; i++) {
+            String part = parts[i];
+            if (part.isEmpty() || part.length() > 3 || !part.chars().allMatch(c -> c >= '0' && c <= '9')) {
+                return null;
+            }
+            int octet = Integer.parseInt(part);
+            if (octet > 255) {
+                return null;
+            }
+            address[i] = (byte) octet;
+        }
+        return address;
+    }
+}
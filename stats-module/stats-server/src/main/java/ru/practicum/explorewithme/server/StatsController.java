@@ -1,10 +1,14 @@
 package ru.practicum.explorewithme.server;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.explorewithme.dto.EndpointHit;
+import ru.practicum.explorewithme.dto.HitBatchResult;
 import ru.practicum.explorewithme.dto.ViewStats;
+import ru.practicum.explorewithme.dto.ViewStatsSeries;
 
 import java.util.List;
 
@@ -12,21 +16,84 @@ import java.util.List;
 @RequiredArgsConstructor
 public class StatsController {
     private final StatsService statsService;
+    private final AdmissionControl admissionControl;
 
     @PostMapping("/hit")
     public ResponseEntity<Object> hit(@RequestBody EndpointHit endpointHit) {
-        statsService.saveHit(endpointHit);
+        try (AdmissionControl.Permit permit = admissionControl.admitWrite()) {
+            statsService.saveHit(endpointHit);
+        }
         return ResponseEntity.status(201).build();
     }
 
+    @PostMapping("/hit/batch")
+    public ResponseEntity<HitBatchResult> hitBatch(@RequestBody List<EndpointHit> endpointHits) {
+        try (AdmissionControl.Permit permit = admissionControl.admitWrite()) {
+            HitBatchResult result = statsService.saveHits(endpointHits);
+            return ResponseEntity.status(201).body(result);
+        }
+    }
+
     @GetMapping("/stats")
     public ResponseEntity<List<ViewStats>> getStats(
             @RequestParam String start,
             @RequestParam String end,
+            @RequestParam(required = false) List<String> uris,
+            @RequestParam(defaultValue = "false") Boolean unique,
+            @RequestParam(defaultValue = "false") Boolean approximate) {
+
+        try (AdmissionControl.Permit permit = admissionControl.admitRead()) {
+            List<ViewStats> stats = statsService.getStats(start, end, uris, unique, approximate);
+            return ResponseEntity.ok(stats);
+        }
+    }
+
+    @GetMapping(value = "/stats/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamStats(
+            @RequestParam String start,
+            @RequestParam String end,
+            @RequestParam(required = false) List<String> uris,
+            @RequestParam(defaultValue = "false") Boolean unique) {
+
+        // разрешение освобождается после записи ответа, а не при выходе из метода
+        AdmissionControl.Permit permit = admissionControl.admitRead();
+        try {
+            StreamingResponseBody body = statsService.streamStats(start, end, uris, unique);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .body(out -> {
+                        try (permit) {
+                            body.writeTo(out);
+                        }
+                    });
+        } catch (RuntimeException e) {
+            permit.close();
+            throw e;
+        }
+    }
+
+    @GetMapping("/stats/timeseries")
+    public ResponseEntity<List<ViewStatsSeries>> getTimeseries(
+            @RequestParam String start,
+            @RequestParam String end,
+            @RequestParam(required = false) List<String> uris,
+            @RequestParam(defaultValue = "hour") String step,
+            @RequestParam(defaultValue = "false") Boolean unique) {
+
+        try (AdmissionControl.Permit permit = admissionControl.admitRead()) {
+            List<ViewStatsSeries> series = statsService.getTimeseries(start, end, uris, step, unique);
+            return ResponseEntity.ok(series);
+        }
+    }
+
+    @GetMapping("/stats/lifetime")
+    public ResponseEntity<List<ViewStats>> getLifetimeStats(
             @RequestParam(required = false) List<String> uris,
             @RequestParam(defaultValue = "false") Boolean unique) {
 
-        List<ViewStats> stats = statsService.getStats(start, end, uris, unique);
-        return ResponseEntity.ok(stats);
+        try (AdmissionControl.Permit permit = admissionControl.admitRead()) {
+            List<ViewStats> stats = statsService.getLifetimeStats(uris, unique);
+            return ResponseEntity.ok(stats);
+        }
     }
 }
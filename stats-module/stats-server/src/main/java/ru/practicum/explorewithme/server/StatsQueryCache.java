@@ -0,0 +1,184 @@
+package ru.practicum.explorewithme.server;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.explorewithme.dto.ViewStats;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Кэш ответов /stats.
+ * Каждая закоммиченная запись хитов сдвигает отметку записи (watermark) — общую и по каждому URI.
+ * Ответ за диапазон, закончившийся раньше late-hit-grace-seconds до загрузки, хранится,
+ * пока по его URI не придёт запоздавший хит — с временем старше late-hit-grace-seconds
+ * на момент записи: хиты без опоздания в такой диапазон не попадают.
+ * Ответ за диапазон, захватывающий текущее время, отдаётся, пока он моложе staleness-ms
+ * или пока по его URI не было записей после загрузки.
+ * Отметки хранятся в памяти процесса и учитывают только хиты, записанные этим экземпляром.
+ */
+@Component
+public class StatsQueryCache {
+
+    private final boolean enabled;
+    private final long stalenessNanos;
+    private final Duration lateHitGrace;
+    private final Cache<Key, Entry> cache;
+
+    private final AtomicLong ingestSeq = new AtomicLong();
+    private final Watermark allUris = new Watermark();
+    private final ConcurrentHashMap<Integer, Watermark> watermarks = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public StatsQueryCache(MeterRegistry meterRegistry,
+                           @Value("${stats.query.cache.enabled:true}") boolean enabled,
+                           @Value("${stats.query.cache.max-size:10000}") long maxSize,
+                           @Value("${stats.query.cache.staleness-ms:1000}") long stalenessMillis,
+                           @Value("${stats.query.cache.late-hit-grace-seconds:60}") long lateHitGraceSeconds) {
+        this.enabled = enabled;
+        this.stalenessNanos = TimeUnit.MILLISECONDS.toNanos(stalenessMillis);
+        this.lateHitGrace = Duration.ofSeconds(lateHitGraceSeconds);
+
+        this.hits = Counter.builder("stats.query.cache.hits")
+                .register(meterRegistry);
+        this.misses = Counter.builder("stats.query.cache.misses")
+                .description("Промахи, включая устаревшие записи")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("stats.query.cache.evictions")
+                .description("Записи, вытесненные по размеру кэша")
+                .register(meterRegistry);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .removalListener((Key key, Entry entry, RemovalCause cause) -> {
+                    if (cause.wasEvicted()) {
+                        evictions.increment();
+                    }
+                })
+                .build();
+        Gauge.builder("stats.query.cache.size", cache, Cache::estimatedSize)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ответ из кэша или из loader.
+     * @param uriIds id запрошенных URI; null — запрос по всем URI
+     * @param allUrisKnown все запрошенные URI есть в словаре; иначе появление
+     *                     нового URI отслеживается по общей отметке
+     */
+    public List<ViewStats> get(Key key, List<Integer> uriIds, boolean allUrisKnown,
+                               Supplier<List<ViewStats>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null && isFresh(entry, uriIds, allUrisKnown)) {
+            hits.increment();
+            return entry.stats();
+        }
+
+        misses.increment();
+        // отметка и время берутся до чтения: записи, закоммиченные во время чтения, делают ответ устаревшим
+        long loadSeq = ingestSeq.get();
+        long loadedAtNanos = System.nanoTime();
+        LocalDateTime loadedAt = LocalDateTime.now();
+        List<ViewStats> stats = List.copyOf(loader.get());
+        boolean past = key.end().isBefore(loadedAt.minus(lateHitGrace));
+        cache.put(key, new Entry(stats, loadSeq, loadedAtNanos, past));
+        return stats;
+    }
+
+    /**
+     * Сдвигает отметки записи после коммита текущей транзакции
+     */
+    public void onIngested(List<EndpointHitEntity> entities) {
+        if (!enabled || entities.isEmpty()) {
+            return;
+        }
+
+        AfterCommit.run(() -> {
+            long seq = ingestSeq.incrementAndGet();
+            LocalDateTime lateBefore = LocalDateTime.now().minus(lateHitGrace);
+            for (EndpointHitEntity entity : entities) {
+                boolean late = entity.getTimestamp().isBefore(lateBefore);
+                allUris.advance(seq, late);
+                watermarks.computeIfAbsent(entity.getUriId(), id -> new Watermark()).advance(seq, late);
+            }
+        });
+    }
+
+    /**
+     * Сброс всех ответов — после удаления хитов по retention-days
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private boolean isFresh(Entry entry, List<Integer> uriIds, boolean allUrisKnown) {
+        if (!entry.past() && System.nanoTime() - entry.loadedAtNanos() < stalenessNanos) {
+            return true;
+        }
+
+        if (uriIds == null || !allUrisKnown) {
+            if (!allUris.unchangedSince(entry.loadSeq(), entry.past())) {
+                return false;
+            }
+            if (uriIds == null) {
+                return true;
+            }
+        }
+        for (Integer uriId : uriIds) {
+            Watermark watermark = watermarks.get(uriId);
+            if (watermark != null && !watermark.unchangedSince(entry.loadSeq(), entry.past())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Ключ запроса: URI отсортированы и без повторов, null-флаги приведены к false
+     */
+    public record Key(LocalDateTime start, LocalDateTime end, List<String> uris,
+                      boolean unique, boolean approximate) {
+
+        public static Key of(LocalDateTime start, LocalDateTime end, List<String> uris,
+                             Boolean unique, Boolean approximate) {
+            List<String> normalized = uris == null ? List.of() : uris.stream().distinct().sorted().toList();
+            return new Key(start, end, normalized, Boolean.TRUE.equals(unique), Boolean.TRUE.equals(approximate));
+        }
+    }
+
+    private record Entry(List<ViewStats> stats, long loadSeq, long loadedAtNanos, boolean past) {
+    }
+
+    private static final class Watermark {
+        private final AtomicLong lastIngest = new AtomicLong();
+        private final AtomicLong lastLateIngest = new AtomicLong();
+
+        private void advance(long seq, boolean late) {
+            lastIngest.accumulateAndGet(seq, Math::max);
+            if (late) {
+                lastLateIngest.accumulateAndGet(seq, Math::max);
+            }
+        }
+
+        private boolean unchangedSince(long seq, boolean past) {
+            return (past ? lastLateIngest.get() : lastIngest.get()) <= seq;
+        }
+    }
+}
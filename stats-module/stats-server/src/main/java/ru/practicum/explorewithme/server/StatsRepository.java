@@ -1,57 +1,8 @@
 package ru.practicum.explorewithme.server;
 
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.time.LocalDateTime;
-import java.util.List;
-
 @Repository
-public interface StatsRepository extends JpaRepository<EndpointHitEntity, Long> {
-
-    @Query("SELECT h.app, h.uri, COUNT(h.ip) " +
-            "FROM EndpointHitEntity h " +
-            "WHERE h.timestamp BETWEEN :start AND :end " +
-            "AND h.uri IN :uris " +
-            "GROUP BY h.app, h.uri " +
-            "ORDER BY COUNT(h.ip) DESC")
-    List<Object[]> findStatsByUris(
-            @Param("start") LocalDateTime start,
-            @Param("end") LocalDateTime end,
-            @Param("uris") List<String> uris
-    );
-
-    @Query("SELECT h.app, h.uri, COUNT(h.ip) " +
-            "FROM EndpointHitEntity h " +
-            "WHERE h.timestamp BETWEEN :start AND :end " +
-            "GROUP BY h.app, h.uri " +
-            "ORDER BY COUNT(h.ip) DESC")
-    List<Object[]> findStatsAll(
-            @Param("start") LocalDateTime start,
-            @Param("end") LocalDateTime end
-    );
-
-    @Query("SELECT h.app, h.uri, COUNT(DISTINCT h.ip) " +
-            "FROM EndpointHitEntity h " +
-            "WHERE h.timestamp BETWEEN :start AND :end " +
-            "AND h.uri IN :uris " +
-            "GROUP BY h.app, h.uri " +
-            "ORDER BY COUNT(DISTINCT h.ip) DESC")
-    List<Object[]> findUniqueStatsByUris(
-            @Param("start") LocalDateTime start,
-            @Param("end") LocalDateTime end,
-            @Param("uris") List<String> uris
-    );
-
-    @Query("SELECT h.app, h.uri, COUNT(DISTINCT h.ip) " +
-            "FROM EndpointHitEntity h " +
-            "WHERE h.timestamp BETWEEN :start AND :end " +
-            "GROUP BY h.app, h.uri " +
-            "ORDER BY COUNT(DISTINCT h.ip) DESC")
-    List<Object[]> findUniqueStatsAll(
-            @Param("start") LocalDateTime start,
-            @Param("end") LocalDateTime end
-    );
-}
\ No newline at end of file
+public interface StatsRepository extends JpaRepository<EndpointHitEntity, Long>, StatsRepositoryCustom {
+}
@@ -0,0 +1,65 @@
+package ru.practicum.explorewithme.server;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface StatsRepositoryCustom {
+
+    /**
+     * Сохраняет хиты многострочными INSERT в текущей транзакции,
+     * без загрузки сущностей в контекст персистентности,
+     * увеличивает минутные и часовые счётчики hits_minute/hits_hour
+     * и добавляет IP в часовые и дневные скетчи HyperLogLog
+     */
+    void insertAll(List<EndpointHitEntity> hits);
+
+    /**
+     * Пополняет hits_uri_raw исходными URI хитов, у которых задан rawUri
+     */
+    void recordRawUris(List<EndpointHitEntity> hits);
+
+    /**
+     * Число хитов (app_id, uri_id, hits) за [start, end]: целые часы и минуты диапазона
+     * берутся из счётчиков, неполные минуты на краях — из hits.
+     * uriIds == null — по всем URI. Упорядочено по убыванию hits.
+     */
+    List<Object[]> findStatsFromRollups(LocalDateTime start, LocalDateTime end, List<Integer> uriIds);
+
+    /**
+     * Точное число уникальных IP (app_id, uri_id, hits) за [start, end].
+     * Упорядочено по убыванию hits.
+     */
+    List<Object[]> findUniqueStats(LocalDateTime start, LocalDateTime end, List<Integer> uriIds);
+
+    /**
+     * Те же группы, что findStatsFromRollups (unique = false) или findUniqueStats (unique = true),
+     * но с названиями (app, uri, hits), передаются в consumer по мере чтения, без сборки списка.
+     * Вызывать в транзакции:
+     * драйвер PostgreSQL читает курсором порциями stats.stream.fetch-size строк только без autocommit.
+     */
+    void streamStats(LocalDateTime start, LocalDateTime end, List<Integer> uriIds, boolean unique,
+                     Consumer<Object[]> consumer);
+
+    /**
+     * Приближённое число уникальных IP (app_id, uri_id, hits) за [start, end]: слияние дневных
+     * и часовых скетчей HyperLogLog, края диапазона — по IP из hits.
+     * Упорядочено по убыванию hits.
+     */
+    List<Object[]> findApproximateUniqueStats(LocalDateTime start, LocalDateTime end, List<Integer> uriIds);
+
+    /**
+     * Хиты по интервалам step (app_id, uri_id, bucket, hits) за [start, end] одним запросом:
+     * неуникальные — из счётчиков не крупнее step и hits на краях, уникальные — из hits.
+     * Упорядочено по app_id, uri_id, bucket.
+     */
+    List<Object[]> findTimeseries(LocalDateTime start, LocalDateTime end, List<Integer> uriIds,
+                                  ChronoUnit step, boolean unique);
+
+    /**
+     * Счётчики за всё время (app_id, uri_id, hits, unique_ips, first_seen, last_seen).
+     * uriIds == null — по всем URI.
+     */
+    List<Object[]> findLifetimeStats(List<Integer> uriIds);
+}
@@ -0,0 +1,541 @@
+package ru.practicum.explorewithme.server;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.Consumer;
+
+@Repository
+public class StatsRepositoryCustomImpl implements StatsRepositoryCustom {
+
+    // до 6 параметров на строку; держимся далеко от лимита PostgreSQL в 32767 параметров
+    private static final int ROWS_PER_INSERT = 500;
+
+    private static final Comparator<List<Object>> URI_KEY_ORDER = Comparator
+            .<List<Object>, Integer>comparing(key -> (Integer) key.get(0))
+            .thenComparing(key -> (Integer) key.get(1));
+
+    private static final Comparator<List<Object>> ROLLUP_KEY_ORDER = URI_KEY_ORDER
+            .thenComparing(key -> (LocalDateTime) key.get(2));
+
+    private static final Comparator<List<Object>> LIFETIME_IP_ORDER = URI_KEY_ORDER
+            .thenComparing(key -> (String) key.get(2));
+
+    private static final Comparator<List<Object>> RAW_URI_ORDER = Comparator
+            .<List<Object>, Integer>comparing(key -> (Integer) key.get(0))
+            .thenComparing(key -> (String) key.get(1));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final NamedParameterJdbcTemplate streamingJdbcTemplate;
+
+    private volatile LocalDateTime sketchesStartedAt;
+
+    public StatsRepositoryCustomImpl(JdbcTemplate jdbcTemplate,
+                                     NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+                                     @Value("${stats.stream.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+        streaming.setFetchSize(fetchSize);
+        this.streamingJdbcTemplate = new NamedParameterJdbcTemplate(streaming);
+    }
+
+    @Override
+    public void insertAll(List<EndpointHitEntity> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> rows = new ArrayList<>(hits.size());
+        for (EndpointHitEntity hit : hits) {
+            rows.add(new Object[]{hit.getAppId(), hit.getUriId(), inet(hit.getIp()), Timestamp.valueOf(hit.getTimestamp())});
+        }
+        insertRows("INSERT INTO hits (app_id, uri_id, ip, timestamp) VALUES ", "", rows);
+
+        upsertRollup("hits_minute", hits, ChronoUnit.MINUTES);
+        upsertRollup("hits_hour", hits, ChronoUnit.HOURS);
+        updateSketches("hits_hour_hll", hits, ChronoUnit.HOURS);
+        updateSketches("hits_day_hll", hits, ChronoUnit.DAYS);
+        upsertLifetime(hits);
+    }
+
+    @Override
+    public void recordRawUris(List<EndpointHitEntity> hits) {
+        Map<List<Object>, Object[]> totals = new TreeMap<>(RAW_URI_ORDER);
+        for (EndpointHitEntity hit : hits) {
+            if (hit.getRawUri() == null) {
+                continue;
+            }
+            LocalDateTime timestamp = hit.getTimestamp();
+            Object[] total = totals.computeIfAbsent(List.of(hit.getUriId(), hit.getRawUri()),
+                    key -> new Object[]{key.get(0), key.get(1), 0L, timestamp});
+            total[2] = (Long) total[2] + 1;
+            if (timestamp.isAfter((LocalDateTime) total[3])) {
+                total[3] = timestamp;
+            }
+        }
+
+        List<Object[]> rows = new ArrayList<>(totals.size());
+        for (Object[] total : totals.values()) {
+            rows.add(new Object[]{total[0], total[1], total[2], Timestamp.valueOf((LocalDateTime) total[3])});
+        }
+        insertRows("INSERT INTO hits_uri_raw AS t (uri_id, raw, hits, last_seen) VALUES ",
+                " ON CONFLICT (uri_id, raw) DO UPDATE SET hits = t.hits + EXCLUDED.hits, "
+                        + "last_seen = GREATEST(t.last_seen, EXCLUDED.last_seen)",
+                rows);
+    }
+
+    @Override
+    public List<Object[]> findStatsFromRollups(LocalDateTime start, LocalDateTime end, List<Integer> uriIds) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        return namedParameterJdbcTemplate.query(rollupStatsQuery(start, end, uriIds, params) + " ORDER BY hits DESC",
+                params,
+                (rs, rowNum) -> new Object[]{
+                        rs.getInt("app_id"),
+                        rs.getInt("uri_id"),
+                        rs.getLong("hits")
+                });
+    }
+
+    @Override
+    public List<Object[]> findUniqueStats(LocalDateTime start, LocalDateTime end, List<Integer> uriIds) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        return namedParameterJdbcTemplate.query(uniqueStatsQuery(start, end, uriIds, params) + " ORDER BY hits DESC",
+                params,
+                (rs, rowNum) -> new Object[]{
+                        rs.getInt("app_id"),
+                        rs.getInt("uri_id"),
+                        rs.getLong("hits")
+                });
+    }
+
+    @Override
+    public void streamStats(LocalDateTime start, LocalDateTime end, List<Integer> uriIds, boolean unique,
+                            Consumer<Object[]> consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String groups = unique
+                ? uniqueStatsQuery(start, end, uriIds, params)
+                : rollupStatsQuery(start, end, uriIds, params);
+        // названия берутся соединением со словарями, а не из HitDictionary: кэш словаря не растёт на все URI
+        String sql = "SELECT a.name AS app, u.uri, t.hits FROM (" + groups + ") t "
+                + "JOIN hits_app a ON a.id = t.app_id JOIN hits_uri u ON u.id = t.uri_id ORDER BY t.hits DESC";
+        streamingJdbcTemplate.query(sql, params, (RowCallbackHandler) rs -> consumer.accept(new Object[]{
+                rs.getString("app"),
+                rs.getString("uri"),
+                rs.getLong("hits")
+        }));
+    }
+
+    private String rollupStatsQuery(LocalDateTime start, LocalDateTime end, List<Integer> uriIds,
+                                    MapSqlParameterSource params) {
+        // timestamp хранится с точностью до секунды, поэтому [start, end] == [start, end + 1s)
+        Map<ChronoUnit, List<LocalDateTime[]>> buckets = new EnumMap<>(ChronoUnit.class);
+        List<LocalDateTime[]> rawRanges = new ArrayList<>();
+        split(start, end.plusSeconds(1), List.of(ChronoUnit.HOURS, ChronoUnit.MINUTES), 0, buckets, rawRanges);
+
+        String uriFilter = uriFilter(uriIds, params);
+
+        List<String> parts = new ArrayList<>();
+        if (buckets.containsKey(ChronoUnit.HOURS)) {
+            parts.add("SELECT app_id, uri_id, hits FROM hits_hour WHERE "
+                    + rangeCondition("bucket", "h", buckets.get(ChronoUnit.HOURS), params) + uriFilter);
+        }
+        if (buckets.containsKey(ChronoUnit.MINUTES)) {
+            parts.add("SELECT app_id, uri_id, hits FROM hits_minute WHERE "
+                    + rangeCondition("bucket", "m", buckets.get(ChronoUnit.MINUTES), params) + uriFilter);
+        }
+        if (!rawRanges.isEmpty()) {
+            parts.add("SELECT app_id, uri_id, 1 AS hits FROM hits WHERE "
+                    + rangeCondition("timestamp", "r", rawRanges, params) + uriFilter);
+        }
+
+        return "SELECT app_id, uri_id, SUM(hits) AS hits FROM (" + String.join(" UNION ALL ", parts) + ") t "
+                + "GROUP BY app_id, uri_id";
+    }
+
+    private String uniqueStatsQuery(LocalDateTime start, LocalDateTime end, List<Integer> uriIds,
+                                    MapSqlParameterSource params) {
+        params.addValue("start", Timestamp.valueOf(start))
+                .addValue("end", Timestamp.valueOf(end));
+        return "SELECT app_id, uri_id, COUNT(DISTINCT ip) AS hits FROM hits "
+                + "WHERE timestamp BETWEEN :start AND :end" + uriFilter(uriIds, params) + " "
+                + "GROUP BY app_id, uri_id";
+    }
+
+    @Override
+    public List<Object[]> findTimeseries(LocalDateTime start, LocalDateTime end, List<Integer> uriIds,
+                                         ChronoUnit step, boolean unique) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String unit = switch (step) {
+            case MINUTES -> "minute";
+            case HOURS -> "hour";
+            case DAYS -> "day";
+            default -> throw new IllegalArgumentException("Неподдерживаемый шаг: " + step);
+        };
+        String source;
+        if (unique) {
+            params.addValue("start", Timestamp.valueOf(start))
+                    .addValue("end", Timestamp.valueOf(end));
+            source = "SELECT app_id, uri_id, timestamp AS bucket, ip FROM hits "
+                    + "WHERE timestamp BETWEEN :start AND :end" + uriFilter(uriIds, params);
+        } else {
+            // часовые счётчики годятся только для шага не мельче часа
+            List<ChronoUnit> units = step == ChronoUnit.MINUTES
+                    ? List.of(ChronoUnit.MINUTES)
+                    : List.of(ChronoUnit.HOURS, ChronoUnit.MINUTES);
+            Map<ChronoUnit, List<LocalDateTime[]>> buckets = new EnumMap<>(ChronoUnit.class);
+            List<LocalDateTime[]> rawRanges = new ArrayList<>();
+            split(start, end.plusSeconds(1), units, 0, buckets, rawRanges);
+
+            String uriFilter = uriFilter(uriIds, params);
+            List<String> parts = new ArrayList<>();
+            if (buckets.containsKey(ChronoUnit.HOURS)) {
+                parts.add("SELECT app_id, uri_id, bucket, hits FROM hits_hour WHERE "
+                        + rangeCondition("bucket", "h", buckets.get(ChronoUnit.HOURS), params) + uriFilter);
+            }
+            if (buckets.containsKey(ChronoUnit.MINUTES)) {
+                parts.add("SELECT app_id, uri_id, bucket, hits FROM hits_minute WHERE "
+                        + rangeCondition("bucket", "m", buckets.get(ChronoUnit.MINUTES), params) + uriFilter);
+            }
+            if (!rawRanges.isEmpty()) {
+                parts.add("SELECT app_id, uri_id, timestamp AS bucket, 1 AS hits FROM hits WHERE "
+                        + rangeCondition("timestamp", "r", rawRanges, params) + uriFilter);
+            }
+            source = String.join(" UNION ALL ", parts);
+        }
+
+        String count = unique ? "COUNT(DISTINCT ip)" : "SUM(hits)";
+        String sql = "SELECT app_id, uri_id, date_trunc('" + unit + "', bucket) AS step_bucket, " + count + " AS hits "
+                + "FROM (" + source + ") t GROUP BY 1, 2, 3 ORDER BY 1, 2, 3";
+
+        return namedParameterJdbcTemplate.query(sql, params, (rs, rowNum) -> new Object[]{
+                rs.getInt("app_id"),
+                rs.getInt("uri_id"),
+                rs.getTimestamp("step_bucket").toLocalDateTime(),
+                rs.getLong("hits")
+        });
+    }
+
+    @Override
+    public List<Object[]> findApproximateUniqueStats(LocalDateTime start, LocalDateTime end, List<Integer> uriIds) {
+        LocalDateTime endExclusive = end.plusSeconds(1);
+        List<LocalDateTime[]> rawRanges = new ArrayList<>();
+        Map<ChronoUnit, List<LocalDateTime[]>> buckets = new EnumMap<>(ChronoUnit.class);
+
+        // до появления скетчей их интервалы не полны — такие хиты читаются из hits
+        LocalDateTime sketchesFrom = getSketchesStartedAt();
+        LocalDateTime sketchedStart = start;
+        if (start.isBefore(sketchesFrom)) {
+            LocalDateTime rawEnd = endExclusive.isBefore(sketchesFrom) ? endExclusive : sketchesFrom;
+            addRange(rawRanges, start, rawEnd);
+            sketchedStart = rawEnd;
+        }
+        split(sketchedStart, endExclusive, List.of(ChronoUnit.DAYS, ChronoUnit.HOURS), 0, buckets, rawRanges);
+
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String uriFilter = uriFilter(uriIds, params);
+        Map<List<Integer>, HyperLogLog> sketches = new HashMap<>();
+
+        if (buckets.containsKey(ChronoUnit.DAYS)) {
+            mergeSketches("SELECT app_id, uri_id, sketch FROM hits_day_hll WHERE "
+                    + rangeCondition("bucket", "d", buckets.get(ChronoUnit.DAYS), params) + uriFilter,
+                    params, sketches);
+        }
+        if (buckets.containsKey(ChronoUnit.HOURS)) {
+            mergeSketches("SELECT app_id, uri_id, sketch FROM hits_hour_hll WHERE "
+                    + rangeCondition("bucket", "h", buckets.get(ChronoUnit.HOURS), params) + uriFilter,
+                    params, sketches);
+        }
+        if (!rawRanges.isEmpty()) {
+            namedParameterJdbcTemplate.query("SELECT DISTINCT app_id, uri_id, host(ip) AS ip FROM hits WHERE "
+                            + rangeCondition("timestamp", "r", rawRanges, params) + uriFilter,
+                    params,
+                    (RowCallbackHandler) rs -> sketches
+                            .computeIfAbsent(List.of(rs.getInt("app_id"), rs.getInt("uri_id")),
+                                    key -> new HyperLogLog())
+                            .add(IpAddresses.canonical(rs.getString("ip"))));
+        }
+
+        List<Object[]> result = new ArrayList<>(sketches.size());
+        sketches.forEach((key, sketch) -> result.add(new Object[]{key.get(0), key.get(1), sketch.estimate()}));
+        result.sort(Comparator.comparing((Object[] row) -> (Long) row[2]).reversed());
+        return result;
+    }
+
+    @Override
+    public List<Object[]> findLifetimeStats(List<Integer> uriIds) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String sql = "SELECT app_id, uri_id, hits, unique_ips, first_seen, last_seen FROM hits_lifetime WHERE TRUE"
+                + uriFilter(uriIds, params);
+
+        return namedParameterJdbcTemplate.query(sql, params, (rs, rowNum) -> new Object[]{
+                rs.getInt("app_id"),
+                rs.getInt("uri_id"),
+                rs.getLong("hits"),
+                rs.getLong("unique_ips"),
+                rs.getTimestamp("first_seen").toLocalDateTime(),
+                rs.getTimestamp("last_seen").toLocalDateTime()
+        });
+    }
+
+    /**
+     * Увеличивает счётчики за интервал unit. Строки предварительно сгруппированы
+     * и отсортированы по ключу: повторов в одном INSERT нет, блокировки берутся
+     * в одном порядке во всех транзакциях.
+     */
+    private void upsertRollup(String table, List<EndpointHitEntity> hits, ChronoUnit unit) {
+        Map<List<Object>, Long> counts = new TreeMap<>(ROLLUP_KEY_ORDER);
+        for (EndpointHitEntity hit : hits) {
+            List<Object> key = List.of(hit.getAppId(), hit.getUriId(), hit.getTimestamp().truncatedTo(unit));
+            counts.merge(key, 1L, Long::sum);
+        }
+
+        List<Object[]> rows = new ArrayList<>(counts.size());
+        counts.forEach((key, count) ->
+                rows.add(new Object[]{key.get(0), key.get(1), Timestamp.valueOf((LocalDateTime) key.get(2)), count}));
+
+        insertRows("INSERT INTO " + table + " (app_id, uri_id, bucket, hits) VALUES ",
+                " ON CONFLICT (app_id, uri_id, bucket) DO UPDATE SET hits = " + table + ".hits + EXCLUDED.hits",
+                rows);
+    }
+
+    /**
+     * Добавляет IP в скетчи интервалов unit. Новые интервалы вставляются сразу готовыми
+     * скетчами пачки; существующие блокируются в порядке ключа, сливаются и перезаписываются.
+     */
+    private void updateSketches(String table, List<EndpointHitEntity> hits, ChronoUnit unit) {
+        Map<List<Object>, HyperLogLog> batchSketches = new TreeMap<>(ROLLUP_KEY_ORDER);
+        for (EndpointHitEntity hit : hits) {
+            List<Object> key = List.of(hit.getAppId(), hit.getUriId(), hit.getTimestamp().truncatedTo(unit));
+            batchSketches.computeIfAbsent(key, k -> new HyperLogLog()).add(hit.getIp());
+        }
+
+        List<Object[]> rows = new ArrayList<>(batchSketches.size());
+        batchSketches.forEach((key, sketch) ->
+                rows.add(new Object[]{key.get(0), key.get(1), Timestamp.valueOf((LocalDateTime) key.get(2)),
+                        sketch.toBytes()}));
+
+        Set<List<Object>> inserted = new HashSet<>();
+        for (int from = 0; from < rows.size(); from += ROWS_PER_INSERT) {
+            List<Object[]> chunk = rows.subList(from, Math.min(from + ROWS_PER_INSERT, rows.size()));
+            StringBuilder sql = new StringBuilder("INSERT INTO " + table + " (app_id, uri_id, bucket, sketch) VALUES ");
+            List<Object> params = new ArrayList<>(chunk.size() * 4);
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i > 0 ? ", " : "").append("(?, ?, ?, ?)");
+                params.addAll(Arrays.asList(chunk.get(i)));
+            }
+            sql.append(" ON CONFLICT (app_id, uri_id, bucket) DO NOTHING RETURNING app_id, uri_id, bucket");
+            jdbcTemplate.query(sql.toString(), (RowCallbackHandler) rs -> inserted.add(List.of(
+                    rs.getInt("app_id"), rs.getInt("uri_id"), rs.getTimestamp("bucket").toLocalDateTime())),
+                    params.toArray());
+        }
+
+        List<List<Object>> existing = batchSketches.keySet().stream()
+                .filter(key -> !inserted.contains(key))
+                .toList();
+        for (int from = 0; from < existing.size(); from += ROWS_PER_INSERT) {
+            List<List<Object>> chunk = existing.subList(from, Math.min(from + ROWS_PER_INSERT, existing.size()));
+            StringBuilder sql = new StringBuilder("SELECT app_id, uri_id, bucket, sketch FROM " + table
+                    + " WHERE (app_id, uri_id, bucket) IN (");
+            List<Object> params = new ArrayList<>(chunk.size() * 3);
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i > 0 ? ", " : "").append("(?, ?, ?)");
+                params.add(chunk.get(i).get(0));
+                params.add(chunk.get(i).get(1));
+                params.add(Timestamp.valueOf((LocalDateTime) chunk.get(i).get(2)));
+            }
+            sql.append(") ORDER BY app_id, uri_id, bucket FOR UPDATE");
+
+            List<Object[]> updates = new ArrayList<>();
+            jdbcTemplate.query(sql.toString(), (RowCallbackHandler) rs -> {
+                LocalDateTime bucket = rs.getTimestamp("bucket").toLocalDateTime();
+                List<Object> key = List.of(rs.getInt("app_id"), rs.getInt("uri_id"), bucket);
+                HyperLogLog stored = HyperLogLog.fromBytes(rs.getBytes("sketch"));
+                if (stored.merge(batchSketches.get(key))) {
+                    updates.add(new Object[]{stored.toBytes(), key.get(0), key.get(1), Timestamp.valueOf(bucket)});
+                }
+            }, params.toArray());
+
+            jdbcTemplate.batchUpdate("UPDATE " + table + " SET sketch = ? WHERE app_id = ? AND uri_id = ? AND bucket = ?",
+                    updates);
+        }
+    }
+
+    /**
+     * Пополняет счётчики за всё время. Уникальные IP считаются точно: новый IP
+     * для (app, uri) — это строка, которую удалось вставить в hits_lifetime_ip.
+     */
+    private void upsertLifetime(List<EndpointHitEntity> hits) {
+        Set<List<Object>> ips = new TreeSet<>(LIFETIME_IP_ORDER);
+        Map<List<Object>, Object[]> totals = new TreeMap<>(URI_KEY_ORDER);
+        for (EndpointHitEntity hit : hits) {
+            ips.add(List.of(hit.getAppId(), hit.getUriId(), hit.getIp()));
+            Object[] total = totals.computeIfAbsent(List.of(hit.getAppId(), hit.getUriId()),
+                    key -> new Object[]{key.get(0), key.get(1), 0L, 0L, hit.getTimestamp(), hit.getTimestamp()});
+            total[2] = (Long) total[2] + 1;
+            if (hit.getTimestamp().isBefore((LocalDateTime) total[4])) {
+                total[4] = hit.getTimestamp();
+            }
+            if (hit.getTimestamp().isAfter((LocalDateTime) total[5])) {
+                total[5] = hit.getTimestamp();
+            }
+        }
+
+        List<Object[]> ipRows = new ArrayList<>(ips.size());
+        for (List<Object> ip : ips) {
+            ipRows.add(new Object[]{ip.get(0), ip.get(1), inet((String) ip.get(2))});
+        }
+        insertRows("INSERT INTO hits_lifetime_ip (app_id, uri_id, ip) VALUES ",
+                " ON CONFLICT DO NOTHING RETURNING app_id, uri_id",
+                ipRows,
+                rs -> {
+                    Object[] total = totals.get(List.of(rs.getInt("app_id"), rs.getInt("uri_id")));
+                    total[3] = (Long) total[3] + 1;
+                });
+
+        List<Object[]> rows = new ArrayList<>(totals.size());
+        for (Object[] total : totals.values()) {
+            rows.add(new Object[]{total[0], total[1], total[2], total[3],
+                    Timestamp.valueOf((LocalDateTime) total[4]), Timestamp.valueOf((LocalDateTime) total[5])});
+        }
+        insertRows("INSERT INTO hits_lifetime AS t (app_id, uri_id, hits, unique_ips, first_seen, last_seen) VALUES ",
+                " ON CONFLICT (app_id, uri_id) DO UPDATE SET hits = t.hits + EXCLUDED.hits, "
+                        + "unique_ips = t.unique_ips + EXCLUDED.unique_ips, "
+                        + "first_seen = LEAST(t.first_seen, EXCLUDED.first_seen), "
+                        + "last_seen = GREATEST(t.last_seen, EXCLUDED.last_seen)",
+                rows);
+    }
+
+    private void mergeSketches(String sql, MapSqlParameterSource params, Map<List<Integer>, HyperLogLog> sketches) {
+        namedParameterJdbcTemplate.query(sql, params, (RowCallbackHandler) rs -> {
+            HyperLogLog sketch = HyperLogLog.fromBytes(rs.getBytes("sketch"));
+            HyperLogLog merged = sketches.putIfAbsent(List.of(rs.getInt("app_id"), rs.getInt("uri_id")), sketch);
+            if (merged != null) {
+                merged.merge(sketch);
+            }
+        });
+    }
+
+    private LocalDateTime getSketchesStartedAt() {
+        LocalDateTime startedAt = sketchesStartedAt;
+        if (startedAt == null) {
+            startedAt = jdbcTemplate.queryForObject("SELECT started_at FROM hits_hll_state WHERE id = 1",
+                    (rs, rowNum) -> rs.getTimestamp("started_at").toLocalDateTime());
+            sketchesStartedAt = startedAt;
+        }
+        return startedAt;
+    }
+
+    private void insertRows(String insert, String suffix, List<Object[]> rows) {
+        insertRows(insert, suffix, rows, null);
+    }
+
+    /**
+     * Многострочные INSERT пачками по ROWS_PER_INSERT; если задан returning,
+     * suffix должен содержать RETURNING, и каждая возвращённая строка передаётся в него
+     */
+    private void insertRows(String insert, String suffix, List<Object[]> rows, RowCallbackHandler returning) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        String placeholders = "(" + String.join(", ", Collections.nCopies(rows.getFirst().length, "?")) + ")";
+
+        for (int from = 0; from < rows.size(); from += ROWS_PER_INSERT) {
+            List<Object[]> chunk = rows.subList(from, Math.min(from + ROWS_PER_INSERT, rows.size()));
+
+            StringBuilder sql = new StringBuilder(insert);
+            List<Object> params = new ArrayList<>(chunk.size() * chunk.getFirst().length);
+            for (int i = 0; i < chunk.size(); i++) {
+                if (i > 0) {
+                    sql.append(", ");
+                }
+                sql.append(placeholders);
+                params.addAll(Arrays.asList(chunk.get(i)));
+            }
+            sql.append(suffix);
+
+            if (returning != null) {
+                jdbcTemplate.query(sql.toString(), returning, params.toArray());
+            } else {
+                jdbcTemplate.update(sql.toString(), params.toArray());
+            }
+        }
+    }
+
+    /**
+     * Разбивает [from, to) на целые интервалы units.get(level) и рекурсивно — края
+     * более мелкими единицами; то, что не покрывается ни одной единицей, уходит в raw
+     */
+    static void split(LocalDateTime from, LocalDateTime to, List<ChronoUnit> units, int level,
+                      Map<ChronoUnit, List<LocalDateTime[]>> buckets, List<LocalDateTime[]> raw) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+        if (level == units.size()) {
+            raw.add(new LocalDateTime[]{from, to});
+            return;
+        }
+
+        ChronoUnit unit = units.get(level);
+        LocalDateTime alignedFrom = ceil(from, unit);
+        LocalDateTime alignedTo = to.truncatedTo(unit);
+        if (alignedFrom.isBefore(alignedTo)) {
+            buckets.computeIfAbsent(unit, u -> new ArrayList<>()).add(new LocalDateTime[]{alignedFrom, alignedTo});
+            split(from, alignedFrom, units, level + 1, buckets, raw);
+            split(alignedTo, to, units, level + 1, buckets, raw);
+        } else {
+            split(from, to, units, level + 1, buckets, raw);
+        }
+    }
+
+    private static String uriFilter(List<Integer> uriIds, MapSqlParameterSource params) {
+        if (uriIds == null) {
+            return "";
+        }
+        // один параметр-массив: шаблон URI может развернуться в больше id, чем допускает IN
+        params.addValue("uriIds", new SqlParameterValue(Types.ARRAY, uriIds.toArray(Integer[]::new)));
+        return " AND uri_id = ANY(:uriIds)";
+    }
+
+    /**
+     * Параметр без типа: PostgreSQL сам приводит строку к типу колонки inet
+     */
+    private static SqlParameterValue inet(String ip) {
+        return new SqlParameterValue(Types.OTHER, ip);
+    }
+
+    private static LocalDateTime ceil(LocalDateTime dateTime, ChronoUnit unit) {
+        LocalDateTime truncated = dateTime.truncatedTo(unit);
+        return truncated.equals(dateTime) ? truncated : truncated.plus(1, unit);
+    }
+
+    private static void addRange(List<LocalDateTime[]> ranges, LocalDateTime from, LocalDateTime to) {
+        if (from.isBefore(to)) {
+            ranges.add(new LocalDateTime[]{from, to});
+        }
+    }
+
+    private static String rangeCondition(String column, String prefix, List<LocalDateTime[]> ranges,
+                                         MapSqlParameterSource params) {
+        List<String> conditions = new ArrayList<>();
+        for (int i = 0; i < ranges.size(); i++) {
+            String from = prefix + "From" + i;
+            String to = prefix + "To" + i;
+            params.addValue(from, Timestamp.valueOf(ranges.get(i)[0]));
+            params.addValue(to, Timestamp.valueOf(ranges.get(i)[1]));
+            conditions.add(column + " >= :" + from + " AND " + column + " < :" + to);
+        }
+        return "(" + String.join(" OR ", conditions) + ")";
+    }
+}
@@ -1,21 +1,37 @@
 package ru.practicum.explorewithme.server;
 
-import jakarta.transaction.Transactional;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.explorewithme.dto.EndpointHit;
+import ru.practicum.explorewithme.dto.HitBatchResult;
 import ru.practicum.explorewithme.dto.ViewStats;
+import ru.practicum.explorewithme.dto.ViewStatsSeries;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -25,25 +41,116 @@ public class StatsService {
     private static final DateTimeFormatter FORMATTER =
             DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
+    // длина колонки hits_uri_raw.raw
+    private static final int MAX_RAW_URI_LENGTH = 2048;
+
     private final StatsRepository statsRepository;
+    private final HitWriteBuffer hitWriteBuffer;
+    private final HitDictionary hitDictionary;
+    private final StatsQueryCache statsQueryCache;
+    private final UriCanonicalizer uriCanonicalizer;
+    private final HitFilter hitFilter;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+
+    @Value("${stats.hit.batch.max-size:1000}")
+    private int maxBatchSize;
+
+    @Value("${stats.timeseries.max-buckets:10000}")
+    private long maxTimeseriesBuckets;
 
-    @Transactional
+    @Value("${stats.stream.fetch-size:1000}")
+    private int streamFlushRows;
+
+    @Value("${stats.hits.retention-days:0}")
+    private int retentionDays;
+
+    /**
+     * Сохранение хита. Новые app и URI попадают в словари до начала транзакции записи:
+     * словарь пишет их своей транзакцией, и запрос не держит два соединения пула сразу.
+     */
     public void saveHit(EndpointHit endpointHit) {
         validateEndpointHit(endpointHit);
 
-        EndpointHitEntity entity = EndpointHitEntity.builder()
-                .app(endpointHit.getApp().trim())
-                .uri(endpointHit.getUri())
-                .ip(endpointHit.getIp())
-                .timestamp(parseDateTime(endpointHit.getTimestamp()))
-                .build();
+        EndpointHitEntity entity = toEntity(endpointHit);
+        if (!accept(endpointHit, entity)) {
+            log.debug("Запрос отброшен фильтром хитов: app={}, uri={}", endpointHit.getApp(), endpointHit.getUri());
+            return;
+        }
+        encode(List.of(endpointHit), List.of(entity));
 
-        statsRepository.save(entity);
-        log.debug("Запрос сохранён: app={}, uri={}", entity.getApp(), entity.getUri());
+        if (hitWriteBuffer.append(entity)) {
+            log.debug("Запрос поставлен в буфер записи: app={}, uri={}", endpointHit.getApp(), endpointHit.getUri());
+            return;
+        }
+
+        write(List.of(entity));
+        log.debug("Запрос сохранён: app={}, uri={}", endpointHit.getApp(), endpointHit.getUri());
+    }
+
+    /**
+     * Пакетное сохранение хитов одной транзакцией. Невалидные элементы не сохраняются
+     * и возвращаются с позицией и причиной, остальные вставляются многострочными INSERT.
+     * Повторы и поток, отсеянные HitFilter, входят в accepted, но не записываются.
+     * Словари пополняются до транзакции записи, как в {@link #saveHit}.
+     */
+    public HitBatchResult saveHits(List<EndpointHit> endpointHits) {
+        if (endpointHits == null || endpointHits.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Пакет хитов не может быть пустым");
+        }
+        if (endpointHits.size() > maxBatchSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Пакет хитов не может быть больше " + maxBatchSize + " элементов");
+        }
+
+        List<EndpointHit> accepted = new ArrayList<>(endpointHits.size());
+        List<EndpointHitEntity> entities = new ArrayList<>(endpointHits.size());
+        List<HitBatchResult.RejectedHit> rejected = new ArrayList<>();
+        for (int i = 0; i < endpointHits.size(); i++) {
+            EndpointHit endpointHit = endpointHits.get(i);
+            try {
+                if (endpointHit == null) {
+                    throw new IllegalArgumentException("Хит не может быть пустым");
+                }
+                validateEndpointHit(endpointHit);
+                EndpointHitEntity entity = toEntity(endpointHit);
+                if (accept(endpointHit, entity)) {
+                    entities.add(entity);
+                    accepted.add(endpointHit);
+                }
+            } catch (IllegalArgumentException e) {
+                rejected.add(new HitBatchResult.RejectedHit(i, e.getMessage()));
+            } catch (ResponseStatusException e) {
+                rejected.add(new HitBatchResult.RejectedHit(i, e.getReason()));
+            }
+        }
+
+        encode(accepted, entities);
+        if (hitWriteBuffer.isEnabled()) {
+            entities.removeIf(hitWriteBuffer::append);
+        }
+        write(entities);
+        log.debug("Пакет хитов сохранён: принято {}, отклонено {}",
+                endpointHits.size() - rejected.size(), rejected.size());
+
+        return new HitBatchResult(endpointHits.size() - rejected.size(), rejected);
     }
 
     public List<ViewStats> getStats(String start, String end,
                                     List<String> uris, Boolean unique) {
+        return getStats(start, end, uris, unique, false);
+    }
+
+    /**
+     * Статистика посещений; при unique и approximate уникальные IP считаются
+     * по скетчам HyperLogLog, и в каждой строке возвращается относительная ошибка оценки.
+     * Точный подсчёт (approximate=false) остаётся для сверок.
+     * uris могут содержать шаблоны со звёздочкой (/events/*): строки возвращаются по каждому подходящему URI.
+     * URI без звёздочки ищутся и в каноническом виде, в котором записаны хиты, и возвращаются в нём.
+     * Ответы кэшируются в StatsQueryCache.
+     */
+    public List<ViewStats> getStats(String start, String end,
+                                    List<String> uris, Boolean unique, Boolean approximate) {
 
         String decodedStart = decodeDateTime(start);
         String decodedEnd = decodeDateTime(end);
@@ -53,29 +160,247 @@ public class StatsService {
 
         validateTimeRange(startTime, endTime);
 
+        List<Integer> uriIds = null;
+        if (uris != null && !uris.isEmpty()) {
+            uriIds = findUriIds(uris);
+            if (uriIds.isEmpty()) {
+                return new ArrayList<>();
+            }
+        }
+
+        StatsQueryCache.Key key = StatsQueryCache.Key.of(startTime, endTime, uris, unique, approximate);
+        boolean allUrisKnown = uriIds == null || (uriIds.size() == key.uris().size()
+                && key.uris().stream().noneMatch(HitDictionary::isPattern));
+        List<Integer> requestedUriIds = uriIds;
+        return statsQueryCache.get(key, uriIds, allUrisKnown,
+                () -> loadStats(startTime, endTime, requestedUriIds, unique, approximate));
+    }
+
+    private List<ViewStats> loadStats(LocalDateTime startTime, LocalDateTime endTime, List<Integer> uriIds,
+                                      Boolean unique, Boolean approximate) {
+        // диапазон покрывает все хиты запрошенных URI — ответ из счётчиков за всё время;
+        // уникальные IP в них учитывают и хиты удалённых по retention секций, как и скетчи,
+        // а точный подсчёт по hits — нет
+        boolean lifetimeMatchesHits = retentionDays <= 0 || !Boolean.TRUE.equals(unique)
+                || Boolean.TRUE.equals(approximate);
+        if (uriIds != null && lifetimeMatchesHits) {
+            List<Object[]> lifetime = statsRepository.findLifetimeStats(uriIds);
+            boolean covered = lifetime.stream().allMatch(row ->
+                    !startTime.isAfter((LocalDateTime) row[4]) && !endTime.isBefore((LocalDateTime) row[5]));
+            if (covered) {
+                return mapToViewStats(toLifetimeRows(lifetime, unique));
+            }
+        }
+
+        if (Boolean.TRUE.equals(unique) && Boolean.TRUE.equals(approximate)) {
+            List<ViewStats> stats = mapToViewStats(statsRepository.findApproximateUniqueStats(startTime, endTime, uriIds));
+            stats.forEach(viewStats -> viewStats.setRelativeError(HyperLogLog.relativeError()));
+            return stats;
+        }
+
         List<Object[]> rawResults;
         if (Boolean.TRUE.equals(unique)) {
-            rawResults = getUniqueStats(startTime, endTime, uris);
+            rawResults = statsRepository.findUniqueStats(startTime, endTime, uriIds);
         } else {
-            rawResults = getAllStats(startTime, endTime, uris);
+            rawResults = statsRepository.findStatsFromRollups(startTime, endTime, uriIds);
         }
 
         return mapToViewStats(rawResults);
     }
 
-    private List<Object[]> getUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
-        if (uris == null || uris.isEmpty()) {
-            return statsRepository.findUniqueStatsAll(start, end);
-        } else {
-            return statsRepository.findUniqueStatsByUris(start, end, uris);
+    /**
+     * Статистика посещений в формате NDJSON — по объекту ViewStats в строке.
+     * Группы читаются курсором порциями по stats.stream.fetch-size и сразу пишутся в ответ,
+     * без сборки всего ответа в памяти; порядок тот же, что в /stats. Приближённый подсчёт не поддерживается:
+     * слияние скетчей требует держать в памяти все группы.
+     * Параметры проверяются до начала ответа, ошибка при чтении обрывает уже начатый ответ.
+     */
+    public StreamingResponseBody streamStats(String start, String end, List<String> uris, Boolean unique) {
+        LocalDateTime startTime = parseDateTime(decodeDateTime(start));
+        LocalDateTime endTime = parseDateTime(decodeDateTime(end));
+        validateTimeRange(startTime, endTime);
+
+        List<Integer> uriIds = uris == null || uris.isEmpty() ? null : findUriIds(uris);
+        if (uriIds != null && uriIds.isEmpty()) {
+            return out -> {
+            };
         }
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        return out -> {
+            OutputStream buffered = new BufferedOutputStream(out);
+            long[] written = {0};
+            long startedAt = System.nanoTime();
+            transactionTemplate.executeWithoutResult(status ->
+                    statsRepository.streamStats(startTime, endTime, uriIds, Boolean.TRUE.equals(unique), row -> {
+                        writeLine(new ViewStats((String) row[0], (String) row[1], (Long) row[2]), buffered);
+                        if (++written[0] % streamFlushRows == 0) {
+                            flush(buffered);
+                        }
+                    }));
+            buffered.flush();
+            log.info("Статистика выгружена потоком: групп {}, {} мс",
+                    written[0], (System.nanoTime() - startedAt) / 1_000_000);
+        };
     }
 
-    private List<Object[]> getAllStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
-        if (uris == null || uris.isEmpty()) {
-            return statsRepository.findStatsAll(start, end);
-        } else {
-            return statsRepository.findStatsByUris(start, end, uris);
+    private void writeLine(ViewStats viewStats, OutputStream out) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(viewStats));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void flush(OutputStream out) {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Хиты по интервалам step для каждого (app, uri) — для графиков просмотров.
+     * Все ряды считаются одним запросом; ряды упорядочены по убыванию суммы хитов.
+     */
+    public List<ViewStatsSeries> getTimeseries(String start, String end, List<String> uris,
+                                               String step, Boolean unique) {
+        LocalDateTime startTime = parseDateTime(decodeDateTime(start));
+        LocalDateTime endTime = parseDateTime(decodeDateTime(end));
+        validateTimeRange(startTime, endTime);
+
+        ChronoUnit unit = switch (step) {
+            case "minute" -> ChronoUnit.MINUTES;
+            case "hour" -> ChronoUnit.HOURS;
+            case "day" -> ChronoUnit.DAYS;
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Шаг должен быть minute, hour или day");
+        };
+        long bucketCount = unit.between(startTime.truncatedTo(unit), endTime) + 1;
+        if (bucketCount > maxTimeseriesBuckets) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Диапазон содержит " + bucketCount + " интервалов " + step
+                            + ", допустимо не больше " + maxTimeseriesBuckets);
+        }
+
+        List<Integer> uriIds = null;
+        if (uris != null && !uris.isEmpty()) {
+            uriIds = findUriIds(uris);
+            if (uriIds.isEmpty()) {
+                return new ArrayList<>();
+            }
+        }
+        List<Object[]> rows = statsRepository.findTimeseries(startTime, endTime, uriIds, unit,
+                Boolean.TRUE.equals(unique));
+        return mapToSeries(rows, step);
+    }
+
+    /**
+     * Статистика за всё время по счётчикам hits_lifetime, без запроса к хитам.
+     * Включает хиты секций, удалённых по retention-days.
+     */
+    public List<ViewStats> getLifetimeStats(List<String> uris, Boolean unique) {
+        List<Integer> uriIds = null;
+        if (uris != null && !uris.isEmpty()) {
+            uriIds = findUriIds(uris);
+            if (uriIds.isEmpty()) {
+                return new ArrayList<>();
+            }
+        }
+        return mapToViewStats(toLifetimeRows(statsRepository.findLifetimeStats(uriIds), unique));
+    }
+
+    /**
+     * id URI из запроса: URI без звёздочки ищутся и в канонических формах, под которыми записаны хиты
+     */
+    private List<Integer> findUriIds(List<String> uris) {
+        List<String> forms = new ArrayList<>();
+        for (String uri : uris) {
+            if (HitDictionary.isPattern(uri)) {
+                forms.add(uri);
+            } else {
+                forms.addAll(uriCanonicalizer.queryForms(uri));
+            }
+        }
+        return hitDictionary.findUriIds(forms);
+    }
+
+    private List<Object[]> toLifetimeRows(List<Object[]> lifetime, Boolean unique) {
+        int column = Boolean.TRUE.equals(unique) ? 3 : 2;
+        return lifetime.stream()
+                .map(row -> new Object[]{row[0], row[1], row[column]})
+                .sorted(Comparator.comparing((Object[] row) -> (Long) row[2]).reversed())
+                .toList();
+    }
+
+    private EndpointHitEntity toEntity(EndpointHit endpointHit) {
+        return EndpointHitEntity.builder()
+                .ip(IpAddresses.canonical(endpointHit.getIp()))
+                .timestamp(parseDateTime(endpointHit.getTimestamp()))
+                .build();
+    }
+
+    /**
+     * Фильтр хитов по строкам app и uri: отброшенные хиты не попадают в словари
+     */
+    private boolean accept(EndpointHit endpointHit, EndpointHitEntity entity) {
+        String app = endpointHit.getApp().trim();
+        return hitFilter.accept(app, uriCanonicalizer.canonicalize(app, endpointHit.getUri()),
+                entity.getIp(), entity.getTimestamp());
+    }
+
+    /**
+     * Запись хитов и исходных URI одной транзакцией
+     */
+    private void write(List<EndpointHitEntity> entities) {
+        if (entities.isEmpty()) {
+            return;
+        }
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            statsRepository.recordRawUris(entities);
+            statsRepository.insertAll(entities);
+            statsQueryCache.onIngested(entities);
+        });
+    }
+
+    /**
+     * Проставляет хитам id приложений и канонических URI из словарей, а также исходные URI,
+     * изменённые приведением, если приложение хранит их в hits_uri_raw
+     */
+    private void encode(List<EndpointHit> endpointHits, List<EndpointHitEntity> entities) {
+        if (endpointHits.isEmpty()) {
+            return;
+        }
+
+        Set<String> apps = new HashSet<>();
+        Set<String> uris = new HashSet<>();
+        List<String> canonicalUris = new ArrayList<>(endpointHits.size());
+        for (EndpointHit endpointHit : endpointHits) {
+            String app = endpointHit.getApp().trim();
+            String uri = uriCanonicalizer.canonicalize(app, endpointHit.getUri());
+            apps.add(app);
+            uris.add(uri);
+            canonicalUris.add(uri);
+        }
+        Map<String, Integer> appIds = hitDictionary.internApps(apps);
+        Map<String, Integer> uriIds = hitDictionary.internUris(uris);
+
+        for (int i = 0; i < entities.size(); i++) {
+            EndpointHit endpointHit = endpointHits.get(i);
+            String app = endpointHit.getApp().trim();
+            Integer uriId = uriIds.get(canonicalUris.get(i));
+            entities.get(i).setAppId(appIds.get(app));
+            entities.get(i).setUriId(uriId);
+
+            String raw = endpointHit.getUri();
+            if (!raw.equals(canonicalUris.get(i)) && raw.length() <= MAX_RAW_URI_LENGTH
+                    && uriCanonicalizer.keepsRaw(app)) {
+                entities.get(i).setRawUri(raw);
+            }
         }
     }
 
@@ -119,12 +444,53 @@ public class StatsService {
         }
     }
 
+    /**
+     * Строки (app_id, uri_id, bucket, hits), упорядоченные по ключу, собираются в ряды
+     */
+    private List<ViewStatsSeries> mapToSeries(List<Object[]> rows, String step) {
+        Set<Integer> appIds = new HashSet<>();
+        Set<Integer> uriIds = new HashSet<>();
+        for (Object[] row : rows) {
+            appIds.add((Integer) row[0]);
+            uriIds.add((Integer) row[1]);
+        }
+        Map<Integer, String> apps = hitDictionary.appNames(appIds);
+        Map<Integer, String> uris = hitDictionary.uriNames(uriIds);
+
+        List<ViewStatsSeries> series = new ArrayList<>();
+        Map<ViewStatsSeries, Long> totals = new IdentityHashMap<>();
+        ViewStatsSeries current = null;
+        Object[] previous = null;
+        for (Object[] row : rows) {
+            if (previous == null || !row[0].equals(previous[0]) || !row[1].equals(previous[1])) {
+                current = new ViewStatsSeries(apps.get((Integer) row[0]), uris.get((Integer) row[1]), step,
+                        new ArrayList<>(), new ArrayList<>());
+                series.add(current);
+            }
+            current.getBuckets().add(((LocalDateTime) row[2]).format(FORMATTER));
+            current.getHits().add((Long) row[3]);
+            totals.merge(current, (Long) row[3], Long::sum);
+            previous = row;
+        }
+        series.sort(Comparator.comparing((ViewStatsSeries s) -> totals.get(s)).reversed());
+        return series;
+    }
+
     private List<ViewStats> mapToViewStats(List<Object[]> rawResults) {
+        Set<Integer> appIds = new HashSet<>();
+        Set<Integer> uriIds = new HashSet<>();
+        for (Object[] row : rawResults) {
+            appIds.add((Integer) row[0]);
+            uriIds.add((Integer) row[1]);
+        }
+        Map<Integer, String> apps = hitDictionary.appNames(appIds);
+        Map<Integer, String> uris = hitDictionary.uriNames(uriIds);
+
         List<ViewStats> viewStatsList = new ArrayList<>();
         for (Object[] row : rawResults) {
             viewStatsList.add(new ViewStats(
-                    (String) row[0],
-                    (String) row[1],
+                    apps.get((Integer) row[0]),
+                    uris.get((Integer) row[1]),
                     (Long) row[2]
             ));
         }
@@ -0,0 +1,32 @@
+package ru.practicum.explorewithme.server;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.*;
+
+/**
+ * Правила приведения URI хитов к каноническому виду по приложениям:
+ * stats.uri.canonical.apps.<app>.*. URI приложений без правил сохраняются как есть.
+ */
+@ConfigurationProperties(prefix = "stats.uri.canonical")
+@Getter
+@Setter
+public class UriCanonicalizationProperties {
+
+    private Map<String, AppRule> apps = new HashMap<>();
+
+    @Getter
+    @Setter
+    public static class AppRule {
+        /** сортировать параметры запроса по имени */
+        private boolean sortParams = true;
+        /** параметры, которые удаляются из URI, например from и size */
+        private Set<String> dropParams = new HashSet<>();
+        /** пути, для которых строка запроса отбрасывается целиком */
+        private Set<String> basePaths = new HashSet<>();
+        /** сохранять исходный URI в hits_uri_raw */
+        private boolean keepRaw;
+    }
+}
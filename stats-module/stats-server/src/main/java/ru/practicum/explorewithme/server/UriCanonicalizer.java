@@ -0,0 +1,99 @@
+package ru.practicum.explorewithme.server;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Приведение URI хита к каноническому виду до записи в словарь: перестановки параметров
+ * и параметры постраничного вывода не порождают новых URI в hits, счётчиках и группировках.
+ * Значения параметров не перекодируются, сравниваются только декодированные имена.
+ * URI из запросов статистики ищутся во всех формах, под которыми могли быть записаны их хиты.
+ */
+@Component
+@EnableConfigurationProperties(UriCanonicalizationProperties.class)
+public class UriCanonicalizer {
+
+    private static final Comparator<String[]> PARAM_ORDER = Comparator
+            .<String[], String>comparing(param -> param[0])
+            .thenComparing(param -> param[1]);
+
+    private final Map<String, UriCanonicalizationProperties.AppRule> rules;
+
+    public UriCanonicalizer(UriCanonicalizationProperties properties) {
+        this.rules = Map.copyOf(properties.getApps());
+    }
+
+    public String canonicalize(String app, String uri) {
+        UriCanonicalizationProperties.AppRule rule = rules.get(app);
+        int query = uri.indexOf('?');
+        if (rule == null || query <= 0) {
+            return uri;
+        }
+
+        String path = uri.substring(0, query);
+        if (rule.getBasePaths().contains(path)) {
+            return path;
+        }
+
+        // имя параметра и исходная пара name=value
+        List<String[]> params = new ArrayList<>();
+        for (String param : uri.substring(query + 1).split("&")) {
+            if (param.isEmpty()) {
+                continue;
+            }
+            int eq = param.indexOf('=');
+            String name = decode(eq < 0 ? param : param.substring(0, eq));
+            if (!rule.getDropParams().contains(name)) {
+                params.add(new String[]{name, param});
+            }
+        }
+        if (params.isEmpty()) {
+            return path;
+        }
+        if (rule.isSortParams()) {
+            params.sort(PARAM_ORDER);
+        }
+
+        StringBuilder canonical = new StringBuilder(path).append('?');
+        for (int i = 0; i < params.size(); i++) {
+            canonical.append(i > 0 ? "&" : "").append(params.get(i)[1]);
+        }
+        return canonical.toString();
+    }
+
+    /**
+     * Формы URI из запроса статистики: исходная и канонические по правилам каждого приложения.
+     * Приложение в запросе статистики не указывается, поэтому применяются все правила;
+     * URI приложений без правил хранятся как есть и находятся по исходной форме.
+     */
+    public Set<String> queryForms(String uri) {
+        Set<String> forms = new LinkedHashSet<>();
+        forms.add(uri);
+        for (String app : rules.keySet()) {
+            forms.add(canonicalize(app, uri));
+        }
+        return forms;
+    }
+
+    public boolean keepsRaw(String app) {
+        UriCanonicalizationProperties.AppRule rule = rules.get(app);
+        return rule != null && rule.isKeepRaw();
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package ru.practicum.explorewithme.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+/**
+ * Упорядоченный индекс URI словаря для разворачивания шаблонов со звёздочкой.
+ * Префикс шаблона до первой * задаёт диапазон ключей, как поддерево в префиксном дереве;
+ * остаток шаблона сверяется только с URI из этого диапазона.
+ */
+final class UriIndex {
+
+    private final ConcurrentSkipListMap<String, Integer> ids = new ConcurrentSkipListMap<>();
+
+    void add(String uri, int id) {
+        ids.putIfAbsent(uri, id);
+    }
+
+    List<Integer> match(String pattern) {
+        int star = pattern.indexOf('*');
+        String prefix = pattern.substring(0, star);
+        String rest = pattern.substring(star);
+        Pattern suffix = rest.equals("*") ? null : compile(rest);
+
+        List<Integer> result = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : ids.tailMap(prefix).entrySet()) {
+            String uri = entry.getKey();
+            if (!uri.startsWith(prefix)) {
+                break;
+            }
+            if (suffix == null || suffix.matcher(uri).region(prefix.length(), uri.length()).matches()) {
+                result.add(entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    private static Pattern compile(String glob) {
+        StringBuilder regex = new StringBuilder();
+        int from = 0;
+        for (int star = glob.indexOf('*'); star >= 0; star = glob.indexOf('*', from)) {
+            if (star > from) {
+                regex.append(Pattern.quote(glob.substring(from, star)));
+            }
+            regex.append(".*");
+            from = star + 1;
+        }
+        if (from < glob.length()) {
+            regex.append(Pattern.quote(glob.substring(from)));
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+}
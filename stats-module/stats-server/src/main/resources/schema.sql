@@ -0,0 +1,114 @@
+-- Хиты секционированы по timestamp; секции создаёт и удаляет HitsPartitionManager,
+-- он же переводит на секции таблицу, созданную до секционирования
+-- Строки app и uri хранятся один раз в словарях, в хитах и счётчиках — их id.
+-- Таблицы прежнего формата со строковыми колонками переводит HitsStorageMigration
+CREATE TABLE IF NOT EXISTS hits_app (
+    id INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS hits_uri (
+    id INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    uri VARCHAR(512) NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS hits (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    app_id INT NOT NULL,
+    uri_id INT NOT NULL,
+    ip INET NOT NULL,
+    timestamp TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+-- Счётчики хитов по минутам и часам, пополняются в одной транзакции со вставкой в hits
+CREATE TABLE IF NOT EXISTS hits_minute (
+    app_id INT NOT NULL,
+    uri_id INT NOT NULL,
+    bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    hits BIGINT NOT NULL,
+    PRIMARY KEY (app_id, uri_id, bucket)
+);
+
+CREATE TABLE IF NOT EXISTS hits_hour (
+    app_id INT NOT NULL,
+    uri_id INT NOT NULL,
+    bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    hits BIGINT NOT NULL,
+    PRIMARY KEY (app_id, uri_id, bucket)
+);
+
+CREATE INDEX IF NOT EXISTS idx_hits_minute_bucket ON hits_minute (bucket);
+CREATE INDEX IF NOT EXISTS idx_hits_hour_bucket ON hits_hour (bucket);
+
+-- Скетчи HyperLogLog уникальных IP по часам и дням
+CREATE TABLE IF NOT EXISTS hits_hour_hll (
+    app_id INT NOT NULL,
+    uri_id INT NOT NULL,
+    bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    sketch BYTEA NOT NULL,
+    PRIMARY KEY (app_id, uri_id, bucket)
+);
+
+CREATE TABLE IF NOT EXISTS hits_day_hll (
+    app_id INT NOT NULL,
+    uri_id INT NOT NULL,
+    bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    sketch BYTEA NOT NULL,
+    PRIMARY KEY (app_id, uri_id, bucket)
+);
+
+CREATE INDEX IF NOT EXISTS idx_hits_hour_hll_bucket ON hits_hour_hll (bucket);
+CREATE INDEX IF NOT EXISTS idx_hits_day_hll_bucket ON hits_day_hll (bucket);
+
+-- Скетчи полны только для часов после уже записанных хитов; более ранние читаются из hits
+CREATE TABLE IF NOT EXISTS hits_hll_state (
+    id INT PRIMARY KEY,
+    started_at TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
+
+INSERT INTO hits_hll_state (id, started_at)
+SELECT 1, COALESCE(date_trunc('hour', MAX(timestamp)) + INTERVAL '1 hour', TIMESTAMP '1970-01-01 00:00:00')
+FROM hits
+ON CONFLICT (id) DO NOTHING;
+
+-- Однократное заполнение счётчиков по хитам, записанным до их появления, выполняет HitsStorageMigration
+CREATE TABLE IF NOT EXISTS hits_rollup_state (
+    id INT PRIMARY KEY,
+    backfilled_at TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
+
+-- Счётчики за всё время по (app, uri) и множество уникальных IP для них;
+-- пополняются в одной транзакции со вставкой в hits, заполнение по старым хитам — в HitsStorageMigration
+CREATE TABLE IF NOT EXISTS hits_lifetime (
+    app_id INT NOT NULL,
+    uri_id INT NOT NULL,
+    hits BIGINT NOT NULL,
+    unique_ips BIGINT NOT NULL,
+    first_seen TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    last_seen TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    PRIMARY KEY (app_id, uri_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_hits_lifetime_uri ON hits_lifetime (uri_id);
+
+CREATE TABLE IF NOT EXISTS hits_lifetime_ip (
+    app_id INT NOT NULL,
+    uri_id INT NOT NULL,
+    ip INET NOT NULL,
+    PRIMARY KEY (app_id, uri_id, ip)
+);
+
+CREATE TABLE IF NOT EXISTS hits_lifetime_state (
+    id INT PRIMARY KEY,
+    backfilled_at TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
+
+-- Исходные URI хитов до приведения к каноническому виду (stats.uri.canonical.apps.<app>.keep-raw)
+CREATE TABLE IF NOT EXISTS hits_uri_raw (
+    uri_id INT NOT NULL,
+    raw VARCHAR(2048) NOT NULL,
+    hits BIGINT NOT NULL,
+    last_seen TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    PRIMARY KEY (uri_id, raw)
+);
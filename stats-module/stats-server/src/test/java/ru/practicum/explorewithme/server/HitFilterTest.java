@@ -0,0 +1,102 @@
+package ru.practicum.explorewithme.server;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HitFilterTest {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2024, 3, 1, 10, 0, 5);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void disabledFilterAcceptsEverything() {
+        HitFilter filter = filter(false, false, 1);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(filter.accept("app", "/events/1", "10.0.0.1", TIME)).isTrue();
+        }
+    }
+
+    @Test
+    void dedupDropsRepeatWithinWindow() {
+        HitFilter filter = filter(true, false, 1);
+
+        assertThat(filter.accept("app", "/events/1", "10.0.0.1", TIME)).isTrue();
+        assertThat(filter.accept("app", "/events/1", "10.0.0.1", TIME.plusSeconds(30))).isFalse();
+        assertThat(dropped("duplicate")).isEqualTo(1);
+    }
+
+    @Test
+    void dedupKeepsHitsOfOtherWindowsIpsUrisAndApps() {
+        HitFilter filter = filter(true, false, 1);
+
+        assertThat(filter.accept("app", "/events/1", "10.0.0.1", TIME)).isTrue();
+        assertThat(filter.accept("app", "/events/1", "10.0.0.1", TIME.plusSeconds(60))).isTrue();
+        assertThat(filter.accept("app", "/events/1", "10.0.0.2", TIME)).isTrue();
+        assertThat(filter.accept("app", "/events/2", "10.0.0.1", TIME)).isTrue();
+        assertThat(filter.accept("other", "/events/1", "10.0.0.1", TIME)).isTrue();
+        assertThat(dropped("duplicate")).isZero();
+    }
+
+    @Test
+    void rateLimitDropsRepeatsOverBurst() {
+        HitFilter filter = filter(false, true, 3);
+
+        int accepted = 0;
+        for (int i = 0; i < 10; i++) {
+            if (filter.accept("app", "/events/1", "10.0.0.1", TIME)) {
+                accepted++;
+            }
+        }
+
+        assertThat(accepted).isEqualTo(3);
+        assertThat(dropped("rate-limit")).isEqualTo(7);
+    }
+
+    @Test
+    void rateLimitNeverDropsFirstHit() {
+        HitFilter filter = filter(false, true, 3);
+        for (int i = 0; i < 10; i++) {
+            filter.accept("app", "/events/1", "10.0.0.1", TIME);
+        }
+
+        for (int i = 2; i < 20; i++) {
+            assertThat(filter.accept("app", "/events/" + i, "10.0.0.1", TIME)).isTrue();
+        }
+        assertThat(filter.accept("app", "/events/2", "10.0.0.1", TIME)).isFalse();
+    }
+
+    @Test
+    void rateLimitIsPerIp() {
+        HitFilter filter = filter(false, true, 1);
+        filter.accept("app", "/events/1", "10.0.0.1", TIME);
+        filter.accept("app", "/events/1", "10.0.0.1", TIME);
+
+        assertThat(filter.accept("app", "/events/1", "10.0.0.1", TIME)).isFalse();
+        assertThat(filter.accept("app", "/events/1", "10.0.0.2", TIME)).isTrue();
+        assertThat(filter.accept("app", "/events/1", "10.0.0.2", TIME)).isFalse();
+    }
+
+    @Test
+    void windowMustDivideHour() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new HitFilter(registry, true, 7, 1000, false, 20, 40));
+        assertThrows(IllegalArgumentException.class,
+                () -> new HitFilter(registry, true, 0, 1000, false, 20, 40));
+    }
+
+    private HitFilter filter(boolean dedup, boolean rateLimit, double burst) {
+        // пополнение практически нулевое, чтобы результат не зависел от скорости теста
+        return new HitFilter(registry, dedup, 60, 1000, rateLimit, 0.001, burst);
+    }
+
+    private double dropped(String reason) {
+        return registry.counter("stats.hit.dropped", "reason", reason).count();
+    }
+}
@@ -0,0 +1,89 @@
+package ru.practicum.explorewithme.server;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HyperLogLogTest {
+
+    @Test
+    void emptySketchEstimatesZero() {
+        assertThat(new HyperLogLog().estimate()).isZero();
+        assertThat(HyperLogLog.fromBytes(null).estimate()).isZero();
+        assertThat(HyperLogLog.fromBytes(new byte[0]).estimate()).isZero();
+    }
+
+    @Test
+    void repeatedValuesAreCountedOnce() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 1000; i++) {
+            sketch.add("192.168.0.1");
+        }
+
+        assertThat(sketch.estimate()).isEqualTo(1);
+    }
+
+    @Test
+    void estimateStaysWithinErrorBounds() {
+        for (int cardinality : new int[]{10, 1_000, 50_000}) {
+            HyperLogLog sketch = new HyperLogLog();
+            for (int i = 0; i < cardinality; i++) {
+                sketch.add("10." + (i >> 16) + "." + ((i >> 8) & 0xFF) + "." + (i & 0xFF));
+            }
+
+            double error = Math.abs(sketch.estimate() - cardinality) / (double) cardinality;
+            assertThat(error).as("cardinality %d", cardinality).isLessThan(4 * HyperLogLog.relativeError());
+        }
+    }
+
+    @Test
+    void mergeEstimatesUnionOfSketches() {
+        HyperLogLog first = new HyperLogLog();
+        HyperLogLog second = new HyperLogLog();
+        HyperLogLog union = new HyperLogLog();
+        for (int i = 0; i < 3000; i++) {
+            String ip = "ip-" + i;
+            if (i < 2000) {
+                first.add(ip);
+            }
+            if (i >= 1000) {
+                second.add(ip);
+            }
+            union.add(ip);
+        }
+
+        assertThat(first.merge(second)).isTrue();
+        assertThat(first.estimate()).isEqualTo(union.estimate());
+        assertThat(first.merge(second)).isFalse();
+    }
+
+    @Test
+    void sparseSerializationRoundTrips() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 100; i++) {
+            sketch.add("ip-" + i);
+        }
+
+        byte[] bytes = sketch.toBytes();
+
+        assertThat(bytes[0]).isEqualTo((byte) 1);
+        assertThat(bytes.length).isLessThan(1 << HyperLogLog.PRECISION);
+        assertThat(HyperLogLog.fromBytes(bytes).estimate()).isEqualTo(sketch.estimate());
+    }
+
+    @Test
+    void denseSerializationRoundTrips() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 100_000; i++) {
+            sketch.add("ip-" + i);
+        }
+
+        byte[] bytes = sketch.toBytes();
+
+        assertThat(bytes[0]).isEqualTo((byte) 0);
+        assertThat(bytes).hasSize(1 + (1 << HyperLogLog.PRECISION));
+        HyperLogLog restored = HyperLogLog.fromBytes(bytes);
+        assertThat(restored.estimate()).isEqualTo(sketch.estimate());
+        assertThat(restored.merge(sketch)).isFalse();
+    }
+}
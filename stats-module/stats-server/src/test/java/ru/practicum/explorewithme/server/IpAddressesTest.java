@@ -0,0 +1,44 @@
+package ru.practicum.explorewithme.server;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IpAddressesTest {
+
+    @Test
+    void ipv4IsNormalized() {
+        assertThat(IpAddresses.canonical("192.168.0.1")).isEqualTo("192.168.0.1");
+        assertThat(IpAddresses.canonical(" 10.0.0.1 ")).isEqualTo("10.0.0.1");
+        assertThat(IpAddresses.canonical("010.000.0.01")).isEqualTo("10.0.0.1");
+    }
+
+    @Test
+    void ipv6IsNormalized() {
+        assertThat(IpAddresses.canonical("2001:DB8::1")).isEqualTo("2001:db8:0:0:0:0:0:1");
+        assertThat(IpAddresses.canonical("::1")).isEqualTo(IpAddresses.canonical("0:0:0:0:0:0:0:1"));
+    }
+
+    @Test
+    void nonAddressIsHashedIntoUniqueLocalRange() {
+        String hashed = IpAddresses.canonical("unknown");
+
+        assertThat(hashed).startsWith("fd");
+        assertThat(IpAddresses.canonical("unknown")).isEqualTo(hashed);
+        assertThat(IpAddresses.canonical("unknown-2")).isNotEqualTo(hashed);
+    }
+
+    @Test
+    void malformedIpv4IsHashed() {
+        assertThat(IpAddresses.canonical("256.0.0.1")).startsWith("fd");
+        assertThat(IpAddresses.canonical("1.2.3")).startsWith("fd");
+        assertThat(IpAddresses.canonical("1.2.3.4.5")).startsWith("fd");
+        assertThat(IpAddresses.canonical("1..3.4")).startsWith("fd");
+        assertThat(IpAddresses.canonical("localhost")).startsWith("fd");
+    }
+
+    @Test
+    void malformedIpv6IsHashed() {
+        assertThat(IpAddresses.canonical("2001:::1:zz")).startsWith("fd");
+    }
+}
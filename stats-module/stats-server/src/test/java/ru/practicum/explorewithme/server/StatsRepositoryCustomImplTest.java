@@ -0,0 +1,111 @@
+package ru.practicum.explorewithme.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatsRepositoryCustomImplTest {
+
+    private static final List<ChronoUnit> HOURS_MINUTES = List.of(ChronoUnit.HOURS, ChronoUnit.MINUTES);
+
+    private final Map<ChronoUnit, List<LocalDateTime[]>> buckets = new EnumMap<>(ChronoUnit.class);
+    private final List<LocalDateTime[]> raw = new ArrayList<>();
+
+    @Test
+    void alignedRangeIsCoveredByHours() {
+        split(at(10, 0, 0), at(13, 0, 0), HOURS_MINUTES);
+
+        assertThat(buckets.get(ChronoUnit.HOURS)).containsExactly(range(at(10, 0, 0), at(13, 0, 0)));
+        assertThat(buckets).doesNotContainKey(ChronoUnit.MINUTES);
+        assertThat(raw).isEmpty();
+    }
+
+    @Test
+    void edgesAreCoveredByMinutesAndRawSeconds() {
+        split(at(10, 15, 30), at(12, 40, 10), HOURS_MINUTES);
+
+        assertThat(buckets.get(ChronoUnit.HOURS)).containsExactly(range(at(11, 0, 0), at(12, 0, 0)));
+        assertThat(buckets.get(ChronoUnit.MINUTES)).containsExactly(
+                range(at(10, 16, 0), at(11, 0, 0)),
+                range(at(12, 0, 0), at(12, 40, 0)));
+        assertThat(raw).containsExactly(
+                range(at(10, 15, 30), at(10, 16, 0)),
+                range(at(12, 40, 0), at(12, 40, 10)));
+        assertCovers(at(10, 15, 30), at(12, 40, 10));
+    }
+
+    @Test
+    void rangeShorterThanHourFallsBackToMinutes() {
+        split(at(10, 15, 0), at(10, 45, 0), HOURS_MINUTES);
+
+        assertThat(buckets).doesNotContainKey(ChronoUnit.HOURS);
+        assertThat(buckets.get(ChronoUnit.MINUTES)).containsExactly(range(at(10, 15, 0), at(10, 45, 0)));
+        assertThat(raw).isEmpty();
+    }
+
+    @Test
+    void rangeInsideOneMinuteIsRaw() {
+        split(at(10, 15, 5), at(10, 15, 50), HOURS_MINUTES);
+
+        assertThat(buckets).isEmpty();
+        assertThat(raw).containsExactly(range(at(10, 15, 5), at(10, 15, 50)));
+    }
+
+    @Test
+    void emptyRangeProducesNothing() {
+        split(at(10, 0, 0), at(10, 0, 0), HOURS_MINUTES);
+        split(at(11, 0, 0), at(10, 0, 0), HOURS_MINUTES);
+
+        assertThat(buckets).isEmpty();
+        assertThat(raw).isEmpty();
+    }
+
+    @Test
+    void daysAndHoursCoverMultiDayRange() {
+        LocalDateTime from = LocalDateTime.of(2024, 3, 1, 22, 30);
+        LocalDateTime to = LocalDateTime.of(2024, 3, 4, 1, 0);
+
+        split(from, to, List.of(ChronoUnit.DAYS, ChronoUnit.HOURS));
+
+        assertThat(buckets.get(ChronoUnit.DAYS)).containsExactly(
+                range(LocalDateTime.of(2024, 3, 2, 0, 0), LocalDateTime.of(2024, 3, 4, 0, 0)));
+        assertThat(buckets.get(ChronoUnit.HOURS)).containsExactly(
+                range(LocalDateTime.of(2024, 3, 1, 23, 0), LocalDateTime.of(2024, 3, 2, 0, 0)),
+                range(LocalDateTime.of(2024, 3, 4, 0, 0), to));
+        assertThat(raw).containsExactly(range(from, LocalDateTime.of(2024, 3, 1, 23, 0)));
+        assertCovers(from, to);
+    }
+
+    private void split(LocalDateTime from, LocalDateTime to, List<ChronoUnit> units) {
+        StatsRepositoryCustomImpl.split(from, to, units, 0, buckets, raw);
+    }
+
+    private void assertCovers(LocalDateTime from, LocalDateTime to) {
+        List<LocalDateTime[]> all = new ArrayList<>(raw);
+        buckets.values().forEach(all::addAll);
+        all.sort(Comparator.comparing(r -> r[0]));
+
+        LocalDateTime cursor = from;
+        for (LocalDateTime[] r : all) {
+            assertThat(r[0]).isEqualTo(cursor);
+            cursor = r[1];
+        }
+        assertThat(cursor).isEqualTo(to);
+    }
+
+    private static LocalDateTime at(int hour, int minute, int second) {
+        return LocalDateTime.of(2024, 3, 1, hour, minute, second);
+    }
+
+    private static LocalDateTime[] range(LocalDateTime from, LocalDateTime to) {
+        return new LocalDateTime[]{from, to};
+    }
+}
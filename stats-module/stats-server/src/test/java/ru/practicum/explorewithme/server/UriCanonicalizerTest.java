@@ -0,0 +1,82 @@
+package ru.practicum.explorewithme.server;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UriCanonicalizerTest {
+
+    private UriCanonicalizer canonicalizer;
+
+    @BeforeEach
+    void setUp() {
+        UriCanonicalizationProperties.AppRule main = new UriCanonicalizationProperties.AppRule();
+        main.setDropParams(Set.of("from", "size"));
+        main.setBasePaths(Set.of("/compilations"));
+        main.setKeepRaw(true);
+
+        UriCanonicalizationProperties.AppRule unsorted = new UriCanonicalizationProperties.AppRule();
+        unsorted.setSortParams(false);
+        unsorted.setDropParams(Set.of("size"));
+
+        UriCanonicalizationProperties properties = new UriCanonicalizationProperties();
+        properties.getApps().put("ewm-main-service", main);
+        properties.getApps().put("other", unsorted);
+        canonicalizer = new UriCanonicalizer(properties);
+    }
+
+    @Test
+    void appWithoutRuleKeepsUri() {
+        assertThat(canonicalizer.canonicalize("unknown", "/events?size=10&from=0"))
+                .isEqualTo("/events?size=10&from=0");
+        assertThat(canonicalizer.keepsRaw("unknown")).isFalse();
+    }
+
+    @Test
+    void uriWithoutQueryIsUnchanged() {
+        assertThat(canonicalizer.canonicalize("ewm-main-service", "/events/1")).isEqualTo("/events/1");
+    }
+
+    @Test
+    void paramsAreSortedAndPagingIsDropped() {
+        assertThat(canonicalizer.canonicalize("ewm-main-service", "/events?text=jazz&size=10&categories=1&from=20"))
+                .isEqualTo("/events?categories=1&text=jazz");
+        assertThat(canonicalizer.canonicalize("ewm-main-service", "/events?categories=2&categories=1"))
+                .isEqualTo("/events?categories=1&categories=2");
+    }
+
+    @Test
+    void encodedParamNamesAreDecodedButValuesAreKept() {
+        assertThat(canonicalizer.canonicalize("ewm-main-service", "/events?%66rom=10&text=%D0%B4%D0%B6%D0%B0%D0%B7"))
+                .isEqualTo("/events?text=%D0%B4%D0%B6%D0%B0%D0%B7");
+    }
+
+    @Test
+    void onlyDroppedParamsLeavePath() {
+        assertThat(canonicalizer.canonicalize("ewm-main-service", "/events?from=0&size=10&")).isEqualTo("/events");
+    }
+
+    @Test
+    void basePathDropsWholeQuery() {
+        assertThat(canonicalizer.canonicalize("ewm-main-service", "/compilations?pinned=true&from=0"))
+                .isEqualTo("/compilations");
+    }
+
+    @Test
+    void unsortedRuleKeepsParamOrder() {
+        assertThat(canonicalizer.canonicalize("other", "/events?text=a&size=1&categories=1"))
+                .isEqualTo("/events?text=a&categories=1");
+        assertThat(canonicalizer.keepsRaw("other")).isFalse();
+        assertThat(canonicalizer.keepsRaw("ewm-main-service")).isTrue();
+    }
+
+    @Test
+    void queryFormsIncludeVerbatimAndEveryAppCanonicalForm() {
+        assertThat(canonicalizer.queryForms("/events?size=1&text=a&from=0"))
+                .containsExactlyInAnyOrder("/events?size=1&text=a&from=0", "/events?text=a", "/events?text=a&from=0");
+        assertThat(canonicalizer.queryForms("/events/1")).containsExactly("/events/1");
+    }
+}
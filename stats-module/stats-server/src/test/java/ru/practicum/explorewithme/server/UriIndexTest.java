@@ -0,0 +1,54 @@
+package ru.practicum.explorewithme.server;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UriIndexTest {
+
+    private UriIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new UriIndex();
+        index.add("/events", 1);
+        index.add("/events/1", 2);
+        index.add("/events/12", 3);
+        index.add("/events/12/comments", 4);
+        index.add("/events.json", 5);
+        index.add("/eventsx", 6);
+        index.add("/compilations/1", 7);
+    }
+
+    @Test
+    void trailingStarMatchesWholePrefixRange() {
+        assertThat(index.match("/events/*")).containsExactly(2, 3, 4);
+        assertThat(index.match("/events*")).containsExactlyInAnyOrder(1, 2, 3, 4, 5, 6);
+    }
+
+    @Test
+    void innerStarMatchesSuffix() {
+        assertThat(index.match("/events/*/comments")).containsExactly(4);
+        assertThat(index.match("*/1")).containsExactlyInAnyOrder(2, 7);
+    }
+
+    @Test
+    void regexCharactersInPatternAreLiterals() {
+        assertThat(index.match("/events*.json")).containsExactly(5);
+        assertThat(index.match("/events*.*")).containsExactly(5);
+        assertThat(index.match("/events*[0-9]")).isEmpty();
+    }
+
+    @Test
+    void unknownPrefixMatchesNothing() {
+        assertThat(index.match("/users/*")).isEmpty();
+    }
+
+    @Test
+    void firstIdWinsForDuplicateUri() {
+        index.add("/events/1", 42);
+
+        assertThat(index.match("/events/1*")).containsExactly(2, 3, 4);
+    }
+}